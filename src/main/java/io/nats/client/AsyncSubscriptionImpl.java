@@ -11,6 +11,10 @@ package io.nats.client;
 
 import static io.nats.client.Constants.ERR_BAD_SUBSCRIPTION;
 
+import io.nats.client.BufferPool.PooledBuffer;
+import io.nats.client.Parser.MsgArg;
+
+import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -21,7 +25,15 @@ import java.util.concurrent.Executors;
 class AsyncSubscriptionImpl extends SubscriptionImpl implements AsyncSubscription {
 
     private ExecutorService executor = null;
+    // When set, messages are delivered on this shared pool instead of a
+    // feeder thread of our own.
+    private Dispatcher dispatcher = null;
+    private volatile Dispatcher.Mailbox mailbox = null;
     private MessageHandler msgHandler;
+    // Messages handed back after their handler returned, ready to be refilled.
+    // Filled by the feeder, or one dispatcher worker at a time, and drained by
+    // the reader, so the same single-producer ring as the channel will do.
+    private RingChannel<Message> msgPool = null;
 
     protected AsyncSubscriptionImpl(ConnectionImpl nc, String subj, String queue, MessageHandler cb,
             int maxMsgs, long maxBytes) {
@@ -29,6 +41,82 @@ class AsyncSubscriptionImpl extends SubscriptionImpl implements AsyncSubscriptio
         this.msgHandler = cb;
     }
 
+    @Override
+    Channel<Message> newChannel() {
+        // Only the reader adds to the channel and only the feeder takes.
+        return new RingChannel<Message>(getMaxPendingMsgs());
+    }
+
+    void setMessagePoolSize(int size) {
+        this.msgPool = (size > 0) ? new RingChannel<Message>(size) : null;
+    }
+
+    void setWaitStrategy(WaitStrategy strategy) {
+        Channel<Message> ch = mch;
+        if (ch instanceof RingChannel) {
+            ((RingChannel<Message>) ch).setWaitStrategy(strategy);
+        }
+    }
+
+    void setDispatcher(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    boolean addMessage(Message msg) {
+        msg.receivedNanos = System.nanoTime();
+        boolean added = super.addMessage(msg);
+        Dispatcher.Mailbox mb = mailbox;
+        if (added && mb != null) {
+            mb.schedule();
+        }
+        return added;
+    }
+
+    @Override
+    Message newMessage(MsgArg ma, byte[] buf, int offset, int length) {
+        Message msg = pooledMessage();
+        if (msg == null) {
+            return super.newMessage(ma, buf, offset, length);
+        }
+        msg.fill(ma, this, buf, offset, length);
+        return msg;
+    }
+
+    @Override
+    Message newMessage(MsgArg ma, PooledBuffer buf, int offset, int length) {
+        Message msg = pooledMessage();
+        if (msg == null) {
+            return super.newMessage(ma, buf, offset, length);
+        }
+        msg.fill(ma, this, buf, offset, length);
+        return msg;
+    }
+
+    // Returns a message to refill from the pool, or a new one that will join
+    // the pool when it's done with, or null if pooling is off.
+    private Message pooledMessage() {
+        RingChannel<Message> pool = msgPool;
+        if (pool == null) {
+            return null;
+        }
+        Message msg = pool.poll();
+        if (msg == null) {
+            msg = new Message();
+        }
+        msg.setRecyclable(true);
+        return msg;
+    }
+
+    // Hands a delivered message back to the pool unless the handler retained it.
+    private void recycle(Message msg) {
+        RingChannel<Message> pool = msgPool;
+        if (pool != null && msg.isRecyclable()) {
+            msg.release();
+            pool.add(msg);
+        }
+    }
+
     @Override
     protected boolean processMsg(Message msg) {
         Connection localConn;
@@ -57,11 +145,14 @@ class AsyncSubscriptionImpl extends SubscriptionImpl implements AsyncSubscriptio
 
         long delivered = tallyDeliveredMessage(msg);
         if (localMax <= 0 || delivered <= localMax) {
+            ((ConnectionImpl) localConn).stats
+                    .recordDeliveryLatency(System.nanoTime() - msg.receivedNanos);
             try {
                 localHandler.onMessage(msg);
             } catch (Exception e) {
                 logger.error("Error in callback", e);
             }
+            recycle(msg);
 
             if (delivered == localMax) {
                 try {
@@ -76,7 +167,7 @@ class AsyncSubscriptionImpl extends SubscriptionImpl implements AsyncSubscriptio
     }
 
     boolean isStarted() {
-        return (executor != null);
+        return (executor != null || mailbox != null);
     }
 
 
@@ -100,8 +191,33 @@ class AsyncSubscriptionImpl extends SubscriptionImpl implements AsyncSubscriptio
             }
         };
 
-        if (!isStarted()) {
-            executor = Executors.newSingleThreadExecutor(new NATSThreadFactory("msgfeeder"));
+        if (!isStarted() && dispatcher != null && mch != null) {
+            final ConnectionImpl nc = conn;
+            Dispatcher.Mailbox mb = new Dispatcher.Mailbox(dispatcher, mch) {
+                void deliver(Message msg) {
+                    try {
+                        if (!processMsg(msg)) {
+                            nc.mu.lock();
+                            try {
+                                nc.removeSub(AsyncSubscriptionImpl.this);
+                            } finally {
+                                nc.mu.unlock();
+                            }
+                        }
+                    } catch (Exception e) {
+                        logger.error("Error on async subscription for subject {}", subject, e);
+                    }
+                }
+            };
+            mailbox = mb;
+            // Deliver anything that arrived before we were started.
+            mb.schedule();
+            logger.trace("Dispatching for subject: {} sid: {}", subject, sid);
+        } else if (!isStarted()) {
+            Options opts = (conn != null) ? conn.getOptions() : null;
+            boolean virtual = (opts != null) && opts.isUseVirtualThreads();
+            executor = Executors.newSingleThreadExecutor(
+                    NATSThreadFactory.newThreadFactory("msgfeeder", virtual));
             executor.execute(msgFeeder);
             logger.trace("Started msgFeeder for subject: " + this.getSubject() + " sid: "
                     + this.getSid());
@@ -109,7 +225,12 @@ class AsyncSubscriptionImpl extends SubscriptionImpl implements AsyncSubscriptio
     }
 
     void disable() {
-        if (isStarted()) {
+        Dispatcher.Mailbox mb = mailbox;
+        if (mb != null) {
+            mb.cancel();
+            mailbox = null;
+        }
+        if (executor != null) {
             executor.shutdownNow();
             executor = null;
         }
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of fixed-size, reference-counted read buffers. The reader holds one
+ * reference to the buffer it is filling and every zero-copy Message holds
+ * another; the buffer goes back to the pool when the last one is released.
+ * Buffers that are never released are simply garbage collected.
+ */
+class BufferPool {
+    private final int bufSize;
+    private final int maxPooled;
+    private final Queue<PooledBuffer> free = new ConcurrentLinkedQueue<PooledBuffer>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    BufferPool(int bufSize, int maxPooled) {
+        this.bufSize = bufSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @return a buffer with a reference count of one, taken from the pool if one is available
+     */
+    PooledBuffer acquire() {
+        PooledBuffer buf = free.poll();
+        if (buf == null) {
+            return new PooledBuffer(this, new byte[bufSize]);
+        }
+        freeCount.decrementAndGet();
+        buf.refs.set(1);
+        return buf;
+    }
+
+    private void recycle(PooledBuffer buf) {
+        if (freeCount.incrementAndGet() <= maxPooled) {
+            free.add(buf);
+        } else {
+            freeCount.decrementAndGet();
+        }
+    }
+
+    int getBufferSize() {
+        return bufSize;
+    }
+
+    int size() {
+        return freeCount.get();
+    }
+
+    /**
+     * A read buffer checked out of a BufferPool.
+     */
+    static final class PooledBuffer {
+        private final BufferPool pool;
+        private final byte[] array;
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        PooledBuffer(BufferPool pool, byte[] array) {
+            this.pool = pool;
+            this.array = array;
+        }
+
+        byte[] array() {
+            return array;
+        }
+
+        void retain() {
+            refs.incrementAndGet();
+        }
+
+        /**
+         * Drops a reference, returning the buffer to its pool when it was the last one.
+         */
+        void release() {
+            int n = refs.decrementAndGet();
+            if (n == 0) {
+                pool.recycle(this);
+            } else if (n < 0) {
+                throw new IllegalStateException("Buffer released too many times");
+            }
+        }
+
+        /**
+         * @return {@code true} if nobody but the current holder references this buffer
+         */
+        boolean isExclusive() {
+            return refs.get() == 1;
+        }
+    }
+}
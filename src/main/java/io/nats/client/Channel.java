@@ -61,7 +61,7 @@ public class Channel<T> {
         return result;
     }
 
-    public synchronized T get(long timeout) throws TimeoutException {
+    public T get(long timeout) throws TimeoutException {
         return (get(timeout, TimeUnit.MILLISECONDS));
     }
 
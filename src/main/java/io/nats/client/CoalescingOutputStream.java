@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A double-buffered, multi-producer output stream for the flusher. Writers
+ * reserve space in the active segment with a single atomic add and copy
+ * their bytes in without taking any lock. flush() swaps in the spare
+ * segment, seals the full one, waits for in-flight copies to land and
+ * writes it to the socket stream. Writers only ever wait on socket I/O when
+ * the active segment fills up.
+ *
+ * <p>Messages with a large body skip the segments when the stream underneath
+ * can do gathering writes: the writer drains what's buffered and hands its
+ * parts over as they are, so the body isn't copied into a segment first.
+ *
+ * <p>seal() takes the stream out of service when the socket goes away. Writes
+ * that got in before it are written out; later ones fail with a
+ * SealedException, so that the writer can take its message elsewhere.
+ */
+class CoalescingOutputStream extends OutputStream {
+    // Added to a segment's reservation counter when it is taken out of
+    // service, so that any later reservation lands out of range.
+    private static final long SEALED = 1L << 40;
+
+    private final OutputStream out;
+    private final int capacity;
+    // Serializes draining and writes to the underlying stream.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile Segment active;
+    // Only touched with the flush lock held.
+    private Segment spare;
+    // Total bytes handed to the underlying stream.
+    private volatile long drained = 0L;
+    // Bodies at least this large go out through a gathering write, if out
+    // supports it. 0 turns it off.
+    private volatile int gatherThreshold = 0;
+    // Set once by seal(), with the flush lock held.
+    private volatile boolean sealed = false;
+
+    CoalescingOutputStream(OutputStream out, int size) {
+        this.out = out;
+        this.capacity = size;
+        this.active = new Segment(size);
+        this.spare = new Segment(size);
+        this.spare.reserved.set(SEALED);
+    }
+
+    void setGatherThreshold(int threshold) {
+        this.gatherThreshold = threshold;
+    }
+
+    int getGatherThreshold() {
+        return gatherThreshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        append(b, off, len, null, 0, null, 0);
+    }
+
+    /**
+     * Writes a protocol message made up of up to three parts as a single unit, so that messages
+     * from concurrent writers never interleave.
+     *
+     * @param head the first part, e.g. the protocol line
+     * @param headLen the number of bytes of {@code head} to write
+     * @param body the second part, or {@code null}
+     * @param bodyLen the number of bytes of {@code body} to write
+     * @param tail the last part, or {@code null}
+     * @param tailLen the number of bytes of {@code tail} to write
+     * @throws IOException if the underlying stream had to be written to and failed
+     */
+    void write(byte[] head, int headLen, byte[] body, int bodyLen, byte[] tail, int tailLen)
+            throws IOException {
+        append(head, 0, headLen, body, bodyLen, tail, tailLen);
+    }
+
+    private void append(byte[] b1, int off1, int len1, byte[] b2, int len2, byte[] b3, int len3)
+            throws IOException {
+        int len = len1 + len2 + len3;
+        int threshold = gatherThreshold;
+        if (threshold > 0 && len2 >= threshold && out instanceof GatheringOutput) {
+            flushLock.lock();
+            try {
+                checkSealed();
+                drain();
+                ((GatheringOutput) out).write(b1, off1, len1, b2, len2, b3, len3);
+                drained += len;
+            } finally {
+                flushLock.unlock();
+            }
+            return;
+        }
+        if (len > capacity) {
+            // Too big to buffer; drain what's buffered and hand it straight over.
+            flushLock.lock();
+            try {
+                checkSealed();
+                drain();
+                out.write(b1, off1, len1);
+                if (len2 > 0) {
+                    out.write(b2, 0, len2);
+                }
+                if (len3 > 0) {
+                    out.write(b3, 0, len3);
+                }
+                drained += len;
+            } finally {
+                flushLock.unlock();
+            }
+            return;
+        }
+
+        while (true) {
+            Segment seg = active;
+            long pos = seg.reserved.getAndAdd(len);
+            if (pos + len <= capacity) {
+                int idx = (int) pos;
+                System.arraycopy(b1, off1, seg.buf, idx, len1);
+                idx += len1;
+                if (len2 > 0) {
+                    System.arraycopy(b2, 0, seg.buf, idx, len2);
+                    idx += len2;
+                }
+                if (len3 > 0) {
+                    System.arraycopy(b3, 0, seg.buf, idx, len3);
+                }
+                seg.committed.addAndGet(len);
+                return;
+            }
+            if (pos < SEALED) {
+                // Reserved before the segment was sealed, so the drainer is
+                // counting on hearing back from us.
+                seg.abandoned.addAndGet(len);
+            }
+            // The segment is full, so this writer has to make room itself
+            // unless somebody else already swapped it out.
+            flushLock.lock();
+            try {
+                checkSealed();
+                if (active == seg) {
+                    drain();
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushLock.lock();
+        try {
+            drain();
+            out.flush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes unless another thread is writing to the underlying stream
+     * already, returning whether it did.
+     */
+    boolean tryFlush() throws IOException {
+        if (!flushLock.tryLock()) {
+            return false;
+        }
+        try {
+            drain();
+            out.flush();
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes out what's buffered and fails every later write with a
+     * SealedException, without touching the stream underneath. Writes that
+     * reserved their space before the seal are written out too, so none
+     * are left behind in the stream.
+     */
+    void seal() throws IOException {
+        flushLock.lock();
+        try {
+            if (sealed) {
+                return;
+            }
+            sealed = true;
+            // The active segment stays sealed for good, which sends every
+            // later writer to the flush lock and checkSealed().
+            writeOut(active);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    // The flush lock must be held.
+    private void checkSealed() throws SealedException {
+        if (sealed) {
+            throw new SealedException();
+        }
+    }
+
+    // Swaps the segments and writes out the full one. The flush lock must be
+    // held.
+    private void drain() throws IOException {
+        if (sealed) {
+            return;
+        }
+        Segment seg = active;
+        if (seg.reserved.get() == 0) {
+            return;
+        }
+        Segment next = spare;
+        next.reserved.set(0);
+        active = next;
+        spare = seg;
+        writeOut(seg);
+    }
+
+    // Seals the segment, then waits for everyone who got a reservation in
+    // before the seal to either finish copying or give up, and writes out
+    // what they copied. Successful reservations always form a prefix of the
+    // buffer, so what's committed is exactly what's valid. The flush lock
+    // must be held.
+    private void writeOut(Segment seg) throws IOException {
+        long reserved = seg.reserved.getAndAdd(SEALED);
+        while (seg.committed.get() + seg.abandoned.get() != reserved) {
+            Thread.yield();
+        }
+        int len = (int) seg.committed.get();
+        seg.committed.set(0);
+        seg.abandoned.set(0);
+        if (len > 0) {
+            out.write(seg.buf, 0, len);
+            drained += len;
+        }
+    }
+
+    /**
+     * @return the number of bytes buffered and not yet handed to the underlying stream
+     */
+    int pending() {
+        return (int) active.committed.get();
+    }
+
+    /**
+     * @return a counter that advances with every buffered write, used by the flusher to tell
+     *         whether writers are still active
+     */
+    long getWriteCount() {
+        return drained + active.committed.get();
+    }
+
+    OutputStream getOutputStream() {
+        return out;
+    }
+
+    /**
+     * A stream that can write a message's parts in one go without copying
+     * them together first.
+     */
+    interface GatheringOutput {
+        /**
+         * Writes whatever the stream has buffered, followed by the three
+         * parts, as directly as the stream can.
+         */
+        void write(byte[] head, int headOff, int headLen, byte[] body, int bodyLen, byte[] tail,
+                int tailLen) throws IOException;
+    }
+
+    /**
+     * Thrown by writes to a sealed stream. Nothing of the write went out.
+     */
+    static final class SealedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        SealedException() {
+            super("Output stream is sealed");
+        }
+    }
+
+    /**
+     * One half of the double buffer.
+     */
+    private static final class Segment {
+        final byte[] buf;
+        // Bytes reserved by writers, including reservations that didn't fit.
+        final AtomicLong reserved = new AtomicLong();
+        // Bytes copied in by writers whose reservations fit.
+        final AtomicLong committed = new AtomicLong();
+        // Bytes reserved by writers whose reservations didn't fit.
+        final AtomicLong abandoned = new AtomicLong();
+
+        Segment(int size) {
+            buf = new byte[size];
+        }
+    }
+}
@@ -7,6 +7,8 @@
 package io.nats.client;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -32,6 +34,45 @@ public interface Connection extends AbstractConnection {
      */
     public void publish(Message msg) throws IOException;
 
+    /**
+     * Publishes a batch of messages. The PUB frames for all of them are encoded into one buffer
+     * and handed to the socket as a single write, so the batch costs about as much as one
+     * {@code publish()} call instead of one per message. Messages from other threads never land
+     * in the middle of a batch, unless it's too large to buffer at once, in which case it is
+     * written in chunks of whole messages.
+     * 
+     * @param msgs the messages to publish, in order
+     * @throws IOException if an I/O error is encountered
+     * @throws IllegalArgumentException if a message has no subject or its payload exceeds the
+     *         server's maximum payload size; nothing is published in that case
+     */
+    public void publishBatch(List<Message> msgs) throws IOException;
+
+    /**
+     * Creates a publisher for repeated publishing to {@code subject}. The publisher keeps the
+     * encoded start of the PUB protocol line, so each publish skips encoding the subject.
+     * 
+     * @param subject the subject to publish to
+     * @return a {@code PreparedPublisher} for {@code subject}
+     * @throws NullPointerException if {@code subject} is {@code null}
+     * @throws IllegalArgumentException if {@code subject} is empty
+     * @see PreparedPublisher
+     */
+    public PreparedPublisher prepare(String subject);
+
+    /**
+     * Creates a publisher for repeated publishing to {@code subject}, with {@code reply} as the
+     * reply subject of every message.
+     * 
+     * @param subject the subject to publish to
+     * @param reply the reply subject to send with each message, or {@code null} for none
+     * @return a {@code PreparedPublisher} for {@code subject}
+     * @throws NullPointerException if {@code subject} is {@code null}
+     * @throws IllegalArgumentException if {@code subject} is empty
+     * @see PreparedPublisher
+     */
+    public PreparedPublisher prepare(String subject, String reply);
+
     /**
      * Publishes the payload specified by {@code data} to the subject specified by {@code subject},
      * with an optional reply subject. If {@code reply} is {@code null}, the behavior is identical
@@ -73,4 +114,35 @@ public interface Connection extends AbstractConnection {
     Message request(String subject, byte[] data, long timeout, TimeUnit unit)
             throws TimeoutException, IOException;
 
+    /**
+     * Publishes a request message to the specified subject without waiting for the response. The
+     * returned future completes with the response message, or exceptionally with a
+     * {@link TimeoutException} if {@code timeout} msec elapse first, or with the error that kept
+     * the request from being sent.
+     * 
+     * <p>All asynchronous requests on a connection share a single reply subscription, and their
+     * timeouts are kept by one timer thread, so any number of them can be in flight at once.
+     * Dependent actions that don't specify an executor may run on the connection's delivery
+     * thread or on the timer thread, and should not block.
+     * 
+     * @param subject the subject to publish the request message to
+     * @param data the request message payload
+     * @param timeout how long to wait for a response message (in msec)
+     * @return a future for the response message
+     */
+    public CompletableFuture<Message> requestAsync(String subject, byte[] data, long timeout);
+
+    /**
+     * Publishes a request message to the specified subject without waiting for the response.
+     * 
+     * @param subject the subject to publish the request message to
+     * @param data the request message payload
+     * @param timeout how long to wait for a response message
+     * @param unit the time unit of {@code timeout}
+     * @return a future for the response message
+     * @see #requestAsync(String, byte[], long)
+     */
+    CompletableFuture<Message> requestAsync(String subject, byte[] data, long timeout,
+            TimeUnit unit);
+
 }
@@ -11,12 +11,19 @@ import static io.nats.client.Constants.PROP_CLOSED_CB;
 import static io.nats.client.Constants.PROP_CONNECTION_NAME;
 import static io.nats.client.Constants.PROP_CONNECTION_TIMEOUT;
 import static io.nats.client.Constants.PROP_DISCONNECTED_CB;
+import static io.nats.client.Constants.PROP_DISPATCHER_THREADS;
+import static io.nats.client.Constants.PROP_EVENT_LOOP_THREADS;
 import static io.nats.client.Constants.PROP_EXCEPTION_HANDLER;
+import static io.nats.client.Constants.PROP_FLUSH_BATCH_SIZE;
+import static io.nats.client.Constants.PROP_GATHER_WRITE_THRESHOLD;
 import static io.nats.client.Constants.PROP_HOST;
+import static io.nats.client.Constants.PROP_JMX_ENABLED;
 import static io.nats.client.Constants.PROP_MAX_PENDING_BYTES;
+import static io.nats.client.Constants.PROP_MAX_FLUSH_DELAY;
 import static io.nats.client.Constants.PROP_MAX_PENDING_MSGS;
 import static io.nats.client.Constants.PROP_MAX_PINGS;
 import static io.nats.client.Constants.PROP_MAX_RECONNECT;
+import static io.nats.client.Constants.PROP_MESSAGE_POOL_SIZE;
 import static io.nats.client.Constants.PROP_NORANDOMIZE;
 import static io.nats.client.Constants.PROP_PASSWORD;
 import static io.nats.client.Constants.PROP_PEDANTIC;
@@ -28,9 +35,15 @@ import static io.nats.client.Constants.PROP_RECONNECT_BUF_SIZE;
 import static io.nats.client.Constants.PROP_RECONNECT_WAIT;
 import static io.nats.client.Constants.PROP_SECURE;
 import static io.nats.client.Constants.PROP_SERVERS;
+import static io.nats.client.Constants.PROP_SUBJECT_CACHE_SIZE;
+import static io.nats.client.Constants.PROP_SUBSCRIPTION_WAIT_STRATEGY;
 import static io.nats.client.Constants.PROP_TLS_DEBUG;
 import static io.nats.client.Constants.PROP_URL;
 import static io.nats.client.Constants.PROP_USERNAME;
+import static io.nats.client.Constants.PROP_USE_NIO;
+import static io.nats.client.Constants.PROP_USE_REQUEST_MUX;
+import static io.nats.client.Constants.PROP_USE_VIRTUAL_THREADS;
+import static io.nats.client.Constants.PROP_ZERO_COPY;
 import static io.nats.client.Constants.PROP_VERBOSE;
 import static io.nats.client.Constants.TCP_SCHEME;
 import static io.nats.client.Constants.TLS_SCHEME;
@@ -127,6 +140,27 @@ public class ConnectionFactory implements Cloneable {
      * This property is defined as String {@value #DEFAULT_MAX_PENDING_BYTES}
      */
     public static final int DEFAULT_MAX_PENDING_BYTES = 65536 * 1024;
+    /**
+     * Default number of buffered outbound bytes at which the flusher writes to the socket without
+     * waiting for publishers to go quiet.
+     * <p>
+     * This property is defined as String {@value #DEFAULT_FLUSH_BATCH_SIZE}
+     */
+    public static final int DEFAULT_FLUSH_BATCH_SIZE = 32 * 1024;
+    /**
+     * Default longest time, in microseconds, that the flusher holds back buffered outbound bytes
+     * while publishers keep writing.
+     * <p>
+     * This property is defined as String {@value #DEFAULT_MAX_FLUSH_DELAY_MICROS}
+     */
+    public static final long DEFAULT_MAX_FLUSH_DELAY_MICROS = 1000L;
+    /**
+     * Default payload size, in bytes, from which the NIO transport sends a message with a
+     * gathering write instead of copying it into the outbound buffer.
+     * <p>
+     * This property is defined as String {@value #DEFAULT_GATHER_WRITE_THRESHOLD}
+     */
+    public static final int DEFAULT_GATHER_WRITE_THRESHOLD = 16 * 1024;
 
     private URI url = null;
     private String host = null;
@@ -159,6 +193,21 @@ public class ConnectionFactory implements Cloneable {
     private int maxPendingMsgs = DEFAULT_MAX_PENDING_MSGS;
     private long maxPendingBytes = DEFAULT_MAX_PENDING_BYTES;
     private boolean tlsDebug;
+    private boolean useNio = false;
+    private int eventLoopThreads = 0;
+    private int flushBatchSize = DEFAULT_FLUSH_BATCH_SIZE;
+    private int gatherWriteThreshold = DEFAULT_GATHER_WRITE_THRESHOLD;
+    private long maxFlushDelayMicros = DEFAULT_MAX_FLUSH_DELAY_MICROS;
+    private boolean zeroCopy = false;
+    private int messagePoolSize = 0;
+    private int subjectCacheSize = 0;
+    private WaitStrategy subscriptionWaitStrategy = WaitStrategy.PARK;
+    private EventLoopGroup eventLoopGroup = null;
+    private int dispatcherThreads = 0;
+    private Dispatcher dispatcher = null;
+    private boolean useVirtualThreads = false;
+    private boolean useRequestMux = false;
+    private boolean jmxEnabled = false;
 
     /**
      * Constructs a new connection factory from a {@link Properties} object.
@@ -225,6 +274,52 @@ public class ConnectionFactory implements Cloneable {
         if (props.containsKey(PROP_TLS_DEBUG)) {
             this.setTlsDebug(Boolean.parseBoolean(props.getProperty(PROP_TLS_DEBUG)));
         }
+        // PROP_USE_NIO
+        if (props.containsKey(PROP_USE_NIO)) {
+            this.setUseNio(Boolean.parseBoolean(props.getProperty(PROP_USE_NIO)));
+        }
+        // PROP_ZERO_COPY
+        if (props.containsKey(PROP_ZERO_COPY)) {
+            this.setZeroCopy(Boolean.parseBoolean(props.getProperty(PROP_ZERO_COPY)));
+        }
+        // PROP_MESSAGE_POOL_SIZE
+        if (props.containsKey(PROP_MESSAGE_POOL_SIZE)) {
+            this.setMessagePoolSize(
+                    Integer.parseInt(props.getProperty(PROP_MESSAGE_POOL_SIZE, "0")));
+        }
+        // PROP_SUBJECT_CACHE_SIZE
+        if (props.containsKey(PROP_SUBJECT_CACHE_SIZE)) {
+            this.setSubjectCacheSize(
+                    Integer.parseInt(props.getProperty(PROP_SUBJECT_CACHE_SIZE, "0")));
+        }
+        // PROP_SUBSCRIPTION_WAIT_STRATEGY
+        if (props.containsKey(PROP_SUBSCRIPTION_WAIT_STRATEGY)) {
+            this.setSubscriptionWaitStrategy(WaitStrategy.valueOf(
+                    props.getProperty(PROP_SUBSCRIPTION_WAIT_STRATEGY).trim().toUpperCase()));
+        }
+        // PROP_EVENT_LOOP_THREADS
+        if (props.containsKey(PROP_EVENT_LOOP_THREADS)) {
+            this.setEventLoopThreads(
+                    Integer.parseInt(props.getProperty(PROP_EVENT_LOOP_THREADS, "0")));
+        }
+        // PROP_DISPATCHER_THREADS
+        if (props.containsKey(PROP_DISPATCHER_THREADS)) {
+            this.setDispatcherThreads(
+                    Integer.parseInt(props.getProperty(PROP_DISPATCHER_THREADS, "0")));
+        }
+        // PROP_USE_VIRTUAL_THREADS
+        if (props.containsKey(PROP_USE_VIRTUAL_THREADS)) {
+            this.setUseVirtualThreads(
+                    Boolean.parseBoolean(props.getProperty(PROP_USE_VIRTUAL_THREADS)));
+        }
+        // PROP_USE_REQUEST_MUX
+        if (props.containsKey(PROP_USE_REQUEST_MUX)) {
+            this.setUseRequestMux(Boolean.parseBoolean(props.getProperty(PROP_USE_REQUEST_MUX)));
+        }
+        // PROP_JMX_ENABLED
+        if (props.containsKey(PROP_JMX_ENABLED)) {
+            this.setJmxEnabled(Boolean.parseBoolean(props.getProperty(PROP_JMX_ENABLED)));
+        }
         // PROP_RECONNECT_ALLOWED
         if (props.containsKey(PROP_RECONNECT_ALLOWED)) {
             this.setReconnectAllowed(Boolean.parseBoolean(
@@ -323,6 +418,21 @@ public class ConnectionFactory implements Cloneable {
             this.setMaxPendingBytes(Long.parseLong(props.getProperty(PROP_MAX_PENDING_BYTES,
                     Long.toString(DEFAULT_MAX_PENDING_BYTES))));
         }
+        // PROP_FLUSH_BATCH_SIZE
+        if (props.containsKey(PROP_FLUSH_BATCH_SIZE)) {
+            this.setFlushBatchSize(Integer.parseInt(props.getProperty(PROP_FLUSH_BATCH_SIZE,
+                    Integer.toString(DEFAULT_FLUSH_BATCH_SIZE))));
+        }
+        // PROP_GATHER_WRITE_THRESHOLD
+        if (props.containsKey(PROP_GATHER_WRITE_THRESHOLD)) {
+            this.setGatherWriteThreshold(Integer.parseInt(props.getProperty(
+                    PROP_GATHER_WRITE_THRESHOLD, Integer.toString(DEFAULT_GATHER_WRITE_THRESHOLD))));
+        }
+        // PROP_MAX_FLUSH_DELAY
+        if (props.containsKey(PROP_MAX_FLUSH_DELAY)) {
+            this.setMaxFlushDelayMicros(Long.parseLong(props.getProperty(PROP_MAX_FLUSH_DELAY,
+                    Long.toString(DEFAULT_MAX_FLUSH_DELAY_MICROS))));
+        }
 
     }
 
@@ -406,6 +516,25 @@ public class ConnectionFactory implements Cloneable {
         this.urlString = cf.urlString;
         this.maxPendingMsgs = cf.maxPendingMsgs;
         this.tlsDebug = cf.tlsDebug;
+        this.useNio = cf.useNio;
+        this.eventLoopThreads = cf.eventLoopThreads;
+        synchronized (cf) {
+            this.eventLoopGroup = SharedPool.share(cf.eventLoopGroup);
+        }
+        this.flushBatchSize = cf.flushBatchSize;
+        this.gatherWriteThreshold = cf.gatherWriteThreshold;
+        this.maxFlushDelayMicros = cf.maxFlushDelayMicros;
+        this.zeroCopy = cf.zeroCopy;
+        this.messagePoolSize = cf.messagePoolSize;
+        this.subjectCacheSize = cf.subjectCacheSize;
+        this.subscriptionWaitStrategy = cf.subscriptionWaitStrategy;
+        this.dispatcherThreads = cf.dispatcherThreads;
+        synchronized (cf) {
+            this.dispatcher = SharedPool.share(cf.dispatcher);
+        }
+        this.useVirtualThreads = cf.useVirtualThreads;
+        this.useRequestMux = cf.useRequestMux;
+        this.jmxEnabled = cf.jmxEnabled;
     }
 
     /**
@@ -472,6 +601,8 @@ public class ConnectionFactory implements Cloneable {
         result.setPedantic(pedantic);
         result.setSecure(secure);
         result.setTlsDebug(tlsDebug);
+        result.setUseNio(useNio);
+        result.setEventLoopGroup(getEventLoopGroup());
         result.setReconnectAllowed(reconnectAllowed);
         result.setMaxReconnect(maxReconnect);
         result.setReconnectBufSize(reconnectBufSize);
@@ -484,6 +615,17 @@ public class ConnectionFactory implements Cloneable {
         result.setDisconnectedCallback(disconnectedCallback);
         result.setReconnectedCallback(reconnectedCallback);
         result.setMaxPendingMsgs(maxPendingMsgs);
+        result.setFlushBatchSize(flushBatchSize);
+        result.setGatherWriteThreshold(gatherWriteThreshold);
+        result.setMaxFlushDelayMicros(maxFlushDelayMicros);
+        result.setZeroCopy(zeroCopy);
+        result.setMessagePoolSize(messagePoolSize);
+        result.setSubjectCacheSize(subjectCacheSize);
+        result.setSubscriptionWaitStrategy(subscriptionWaitStrategy);
+        result.setDispatcher(getDispatcher());
+        result.setUseVirtualThreads(useVirtualThreads);
+        result.setUseRequestMux(useRequestMux);
+        result.setJmxEnabled(jmxEnabled);
         result.setSSLContext(sslContext);
         return result;
     }
@@ -534,6 +676,86 @@ public class ConnectionFactory implements Cloneable {
         this.maxPendingBytes = max;
     }
 
+    /**
+     * Gets the number of buffered outbound bytes at which the flusher writes to the socket without
+     * waiting for publishers to go quiet.
+     * 
+     * @return the flush batch size, in bytes
+     * @see #DEFAULT_FLUSH_BATCH_SIZE
+     */
+    public int getFlushBatchSize() {
+        return this.flushBatchSize;
+    }
+
+    /**
+     * Sets the number of buffered outbound bytes at which the flusher writes to the socket without
+     * waiting for publishers to go quiet. Below this size, the flusher writes as soon as
+     * publishers stop writing, or once the maximum flush delay has passed.
+     * 
+     * @param size the flush batch size, in bytes
+     * @see #DEFAULT_FLUSH_BATCH_SIZE
+     * @see #setMaxFlushDelayMicros(long)
+     */
+    public void setFlushBatchSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Flush batch size must be greater than 0");
+        }
+        this.flushBatchSize = size;
+    }
+
+    /**
+     * Gets the payload size from which the NIO transport sends a message with a gathering write.
+     * 
+     * @return the gathering write threshold, in bytes, or 0 if gathering writes are disabled
+     * @see #DEFAULT_GATHER_WRITE_THRESHOLD
+     */
+    public int getGatherWriteThreshold() {
+        return this.gatherWriteThreshold;
+    }
+
+    /**
+     * Sets the payload size from which the NIO transport sends a message with a gathering write.
+     * Such a message's protocol line, payload and trailing CRLF are handed to the socket together
+     * with a single {@code write(ByteBuffer[])}, straight from the caller's payload array, after
+     * whatever is already buffered. Smaller payloads are copied into the outbound buffer as usual,
+     * which is cheaper than a write of their own. Has no effect without NIO, or over TLS.
+     * 
+     * @param threshold the gathering write threshold, in bytes, or 0 to disable gathering writes
+     * @see #DEFAULT_GATHER_WRITE_THRESHOLD
+     * @see #setUseNio(boolean)
+     */
+    public void setGatherWriteThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Gather write threshold cannot be negative");
+        }
+        this.gatherWriteThreshold = threshold;
+    }
+
+    /**
+     * Gets the longest time, in microseconds, that the flusher holds back buffered outbound bytes
+     * while publishers keep writing.
+     * 
+     * @return the maximum flush delay, in microseconds
+     * @see #DEFAULT_MAX_FLUSH_DELAY_MICROS
+     */
+    public long getMaxFlushDelayMicros() {
+        return this.maxFlushDelayMicros;
+    }
+
+    /**
+     * Sets the longest time, in microseconds, that the flusher holds back buffered outbound bytes
+     * while publishers keep writing. A value of 0 flushes on every wakeup.
+     * 
+     * @param micros the maximum flush delay, in microseconds
+     * @see #DEFAULT_MAX_FLUSH_DELAY_MICROS
+     */
+    public void setMaxFlushDelayMicros(long micros) {
+        if (micros < 0) {
+            throw new IllegalArgumentException("Max flush delay cannot be negative");
+        }
+        this.maxFlushDelayMicros = micros;
+    }
+
     /**
      * {@inheritDoc}.
      */
@@ -862,6 +1084,306 @@ public class ConnectionFactory implements Cloneable {
         this.tlsDebug = debug;
     }
 
+    /**
+     * Indicates whether connections use the java.nio {@code SocketChannel} transport.
+     * 
+     * @return {@code true} if the NIO transport is enabled, otherwise {@code false}
+     */
+    public boolean isUseNio() {
+        return useNio;
+    }
+
+    /**
+     * Sets whether connections use the java.nio {@code SocketChannel} transport instead of
+     * blocking socket streams. The NIO transport reads straight into the connection's read buffer
+     * and stages outbound protocol in a reusable direct buffer. TLS connections fall back to the
+     * TLS socket streams once the handshake completes.
+     * 
+     * @param useNio whether to use the NIO transport
+     */
+    public void setUseNio(boolean useNio) {
+        this.useNio = useNio;
+    }
+
+    /**
+     * Indicates whether connections start virtual threads rather than platform threads.
+     * 
+     * @return {@code true} if virtual threads are requested, otherwise {@code false}
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Sets whether connections start virtual threads for the threads the library runs itself:
+     * their read loop, flusher, ping timer and callback executor, and the message feeders of their
+     * asynchronous subscriptions. Virtual threads cost next to nothing while parked, so
+     * connections with large numbers of asynchronous subscriptions stay cheap. Threads of the
+     * application, such as those calling {@code request()}, are not affected. On JDKs without
+     * virtual threads, platform threads are used as before.
+     * 
+     * @param useVirtualThreads whether to use virtual threads where the JDK supports them
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * Indicates whether requests share a single reply subscription per connection.
+     * 
+     * @return {@code true} if request multiplexing is enabled, otherwise {@code false}
+     */
+    public boolean isUseRequestMux() {
+        return useRequestMux;
+    }
+
+    /**
+     * Sets whether {@code request()} calls share a single reply subscription per connection.
+     * Without it, every request subscribes to a new inbox and unsubscribes once the reply
+     * arrives, which costs a {@code SUB} and an {@code UNSUB} per request. With it, the first
+     * request subscribes to a wildcard inbox, {@code _INBOX.<nuid>.*}, and each request only
+     * publishes with its own reply subject under it; replies are routed back to the waiting
+     * request by their last token.
+     * 
+     * @param useRequestMux whether to multiplex requests over a single reply subscription
+     */
+    public void setUseRequestMux(boolean useRequestMux) {
+        this.useRequestMux = useRequestMux;
+    }
+
+    /**
+     * Indicates whether connections register JMX MBeans for themselves and their subscriptions.
+     * 
+     * @return {@code true} if JMX MBeans are registered, otherwise {@code false}
+     */
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    /**
+     * Sets whether connections register JMX MBeans with the platform MBean server. When enabled,
+     * each connection registers a {@link ConnectionMXBean} under
+     * {@code io.nats.client:type=Connection,id=<n>} once connected, with a {@code name} key too
+     * if it has a connection name, and a {@link SubscriptionMXBean} per subscription under
+     * {@code io.nats.client:type=Subscription,connection=<n>,sid=<sid>,subject="<subject>"}, so
+     * their statistics and pending backlogs can be watched with standard JMX tools. The MBeans are
+     * unregistered when the subscription is removed or the connection is closed.
+     * 
+     * @param jmxEnabled whether to register JMX MBeans
+     */
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    /**
+     * Indicates whether received message payloads are zero-copy views over pooled read buffers.
+     * 
+     * @return {@code true} if zero-copy payloads are enabled, otherwise {@code false}
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * Sets whether received message payloads are delivered as read-only views over the
+     * connection's pooled read buffers instead of being copied into a new array for every
+     * message. Such messages should be handed back with {@link Message#release()} once their
+     * payload has been consumed, so that the buffer can be reused; {@link Message#getData()}
+     * still works and makes a copy the first time it is called. A message that is never released
+     * simply keeps its buffer out of the pool until it is garbage collected.
+     * 
+     * @param zeroCopy whether to deliver zero-copy payloads
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+
+    /**
+     * Returns the size of the per-subscription message pool.
+     * 
+     * @return the number of recycled messages each asynchronous subscription keeps, or 0 if
+     *         message pooling is disabled
+     */
+    public int getMessagePoolSize() {
+        return messagePoolSize;
+    }
+
+    /**
+     * Sets the size of the per-subscription message pool. When greater than 0, each asynchronous
+     * subscription hands its {@link Message} objects back to a pool of up to this many once the
+     * {@link MessageHandler} returns and refills them for later deliveries, so steady-state
+     * delivery doesn't allocate. A handler that hangs on to a message after returning must call
+     * {@link Message#retain()} first; the contents of a recycled message, including the array
+     * returned by {@link Message#getData()}, are overwritten by later deliveries.
+     * 
+     * @param size the number of messages to pool per subscription, or 0 to disable pooling
+     */
+    public void setMessagePoolSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Message pool size cannot be negative");
+        }
+        this.messagePoolSize = size;
+    }
+
+    /**
+     * Returns the size of each connection's inbound subject cache.
+     * 
+     * @return the maximum number of subjects cached per connection, or 0 if the cache is disabled
+     */
+    public int getSubjectCacheSize() {
+        return subjectCacheSize;
+    }
+
+    /**
+     * Sets the size of each connection's inbound subject cache. When greater than 0, the subjects
+     * of received messages are interned in a least-recently-used table of up to this many
+     * entries, so that messages on a subject seen recently share one subject {@code byte[]} and
+     * {@code String} instead of each getting their own copies. Worth enabling when inbound
+     * traffic uses a bounded set of subjects; hit and miss counts are reported in
+     * {@link Statistics}.
+     * 
+     * @param size the maximum number of subjects to cache, or 0 to disable the cache
+     */
+    public void setSubjectCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Subject cache size cannot be negative");
+        }
+        this.subjectCacheSize = size;
+    }
+
+    /**
+     * Returns how asynchronous subscriptions wait for messages.
+     * 
+     * @return the wait strategy of asynchronous subscriptions
+     */
+    public WaitStrategy getSubscriptionWaitStrategy() {
+        return subscriptionWaitStrategy;
+    }
+
+    /**
+     * Sets how an asynchronous subscription's delivery thread waits for the next message when
+     * it has caught up. {@link WaitStrategy#PARK} (the default) uses no CPU while idle;
+     * {@link WaitStrategy#YIELD} and {@link WaitStrategy#SPIN} trade a busy core per
+     * subscription for lower delivery latency.
+     * 
+     * @param strategy the wait strategy
+     */
+    public void setSubscriptionWaitStrategy(WaitStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Wait strategy cannot be null");
+        }
+        this.subscriptionWaitStrategy = strategy;
+    }
+
+    /**
+     * Returns the number of shared event loop threads used by connections created from this
+     * factory.
+     * 
+     * @return the number of event loop threads, or 0 if each connection uses its own threads
+     */
+    public int getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    /**
+     * Sets the number of shared event loop threads. When greater than 0, every connection created
+     * from this factory uses the NIO transport and is serviced by one of a fixed pool of
+     * {@code Selector} threads, which handle socket reads, flushes and ping timers, instead of
+     * starting its own reader, flusher and pinger threads. TLS connections keep their own threads.
+     * The pool is created with the first connection and shared with clones of this factory. A
+     * pool that is replaced, because the number of threads changed, or let go of by
+     * {@link #shutdown()} stops once the connections using it are closed.
+     * 
+     * @param threads the number of event loop threads, or 0 to disable the shared event loop
+     */
+    public synchronized void setEventLoopThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Event loop threads cannot be negative");
+        }
+        if (threads != this.eventLoopThreads) {
+            releaseEventLoopGroup();
+        }
+        this.eventLoopThreads = threads;
+    }
+
+    synchronized EventLoopGroup getEventLoopGroup() {
+        if (eventLoopGroup == null && eventLoopThreads > 0) {
+            eventLoopGroup = new EventLoopGroup(eventLoopThreads);
+        }
+        return eventLoopGroup;
+    }
+
+    // Lets go of this factory's hold on its event loop group. The lock must
+    // be held.
+    private void releaseEventLoopGroup() {
+        if (eventLoopGroup != null) {
+            eventLoopGroup.release();
+            eventLoopGroup = null;
+        }
+    }
+
+    /**
+     * Lets go of the shared threads this factory has started, if any. They stop as soon as the
+     * connections still using them, and any clones of this factory sharing them, are done with
+     * them too. The factory itself remains usable and starts new threads for connections created
+     * from it afterwards.
+     * 
+     * @see #setEventLoopThreads(int)
+     * @see #setDispatcherThreads(int)
+     */
+    public synchronized void shutdown() {
+        releaseEventLoopGroup();
+        releaseDispatcher();
+    }
+
+    /**
+     * Returns the number of shared dispatcher threads used by asynchronous subscriptions on
+     * connections created from this factory.
+     * 
+     * @return the number of dispatcher threads, or 0 if each subscription uses its own thread
+     */
+    public int getDispatcherThreads() {
+        return dispatcherThreads;
+    }
+
+    /**
+     * Sets the number of shared dispatcher threads. When greater than 0, the asynchronous
+     * subscriptions of every connection created from this factory have their messages delivered
+     * by a fixed pool of worker threads, instead of each starting a thread of its own. A
+     * subscription only occupies a worker while it has messages to deliver, and its messages are
+     * still delivered one at a time and in order. The subscription wait strategy doesn't apply to
+     * dispatched subscriptions. The pool is created with the first connection and shared with
+     * clones of this factory. A pool that is replaced, because the number of threads changed, or
+     * let go of by {@link #shutdown()} stops once the connections using it are closed.
+     * 
+     * @param threads the number of dispatcher threads, or 0 to give each asynchronous
+     *        subscription its own thread
+     */
+    public synchronized void setDispatcherThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Dispatcher threads cannot be negative");
+        }
+        if (threads != this.dispatcherThreads) {
+            releaseDispatcher();
+        }
+        this.dispatcherThreads = threads;
+    }
+
+    synchronized Dispatcher getDispatcher() {
+        if (dispatcher == null && dispatcherThreads > 0) {
+            dispatcher = new Dispatcher(dispatcherThreads);
+        }
+        return dispatcher;
+    }
+
+    // Lets go of this factory's hold on its dispatcher. The lock must be held.
+    private void releaseDispatcher() {
+        if (dispatcher != null) {
+            dispatcher.release();
+            dispatcher = null;
+        }
+    }
+
     /**
      * Indicates whether reconnection is enabled.
      * 
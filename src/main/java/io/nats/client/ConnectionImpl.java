@@ -21,6 +21,7 @@ import static io.nats.client.Constants.ERR_STALE_CONNECTION;
 import static io.nats.client.Constants.ERR_TIMEOUT;
 import static io.nats.client.Constants.TLS_SCHEME;
 
+import io.nats.client.BufferPool.PooledBuffer;
 import io.nats.client.Constants.ConnState;
 
 import org.slf4j.Logger;
@@ -35,27 +36,37 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketException;
 import java.net.URI;
-import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import javax.management.ObjectName;
 
 class ConnectionImpl implements Connection {
     final Logger logger = LoggerFactory.getLogger(ConnectionImpl.class);
@@ -66,7 +77,7 @@ class ConnectionImpl implements Connection {
 
     private static final String inboxPrefix = "_INBOX.";
 
-    public ConnState status = ConnState.DISCONNECTED;
+    public volatile ConnState status = ConnState.DISCONNECTED;
 
     protected static final String STALE_CONNECTION = "Stale Connection";
     protected static final String THREAD_POOL = "natsthreadpool";
@@ -80,14 +91,13 @@ class ConnectionImpl implements Connection {
     // The size of the bufio reader/writer on top of the socket.
     // protected static final int DEFAULT_BUF_SIZE = 32768;
     protected static final int DEFAULT_BUF_SIZE = 65536;
+    // The most idle read buffers kept around in zero-copy mode.
+    static final int READ_POOL_SIZE = 16;
     protected static final int DEFAULT_STREAM_BUF_SIZE = 8192;
 
     // The size of the bufio while we are reconnecting
     protected static final int DEFAULT_PENDING_SIZE = 1024 * 1024;
 
-    // The buffered size of the flush "kick" channel
-    protected static final int FLUSH_CHAN_SIZE = 1024;
-
     public static final String _CRLF_ = "\r\n";
     public static final String _EMPTY_ = "";
     public static final String _SPC_ = " ";
@@ -121,8 +131,24 @@ class ConnectionImpl implements Connection {
 
     private TCPConnection conn = null;
 
-    // Prepare protocol messages for efficiency
-    ByteBuffer pubProtoBuf = null;
+    // Per-thread scratch space for PUB protocol lines, so that publishers
+    // can encode without sharing a buffer or holding mu.
+    private static final ThreadLocal<byte[]> pubProtoBufs = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[Parser.MAX_CONTROL_LINE_SIZE];
+        }
+    };
+
+    // Largest run of encoded messages publishBatch() writes at once, and the
+    // most its per-thread buffer is kept at.
+    static final int MAX_BATCH_CHUNK = 64 * 1024;
+    private static final ThreadLocal<byte[]> pubBatchBufs = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[Parser.MAX_CONTROL_LINE_SIZE];
+        }
+    };
 
     // we have a buffered reader for writing, and reading.
     // This is for both performance, and having to work around
@@ -130,18 +156,27 @@ class ConnectionImpl implements Connection {
     // stream, but not the BufferedStream).
 
     // private BufferedOutputStream bw = null;
-    private OutputStream bw = null;
+    private volatile OutputStream bw = null;
 
     private BufferedInputStream br = null;
+
+    // Zero-copy mode: read buffers are pooled and messages keep views into
+    // them. readBuf is the buffer the reader is currently parsing.
+    private BufferPool readPool = null;
+    private PooledBuffer readBuf = null;
+
+    // Interns inbound MSG subjects; null unless enabled. Used by the parser.
+    SubjectCache subjectCache = null;
     private ByteArrayOutputStream pending = null;
 
-    private ReentrantLock flusherLock = new ReentrantLock();
-    private boolean flusherDone = false;
+    private volatile boolean flusherDone = false;
+    private volatile Thread flusherThread = null;
+    private final AtomicBoolean flushKicked = new AtomicBoolean(false);
 
-    protected Map<Long, SubscriptionImpl> subs = new ConcurrentHashMap<Long, SubscriptionImpl>();
+    protected SidMap subs = new SidMap();
     protected List<Srv> srvPool = null;
-    private Exception lastEx = null;
-    private ServerInfo info = null;
+    private volatile Exception lastEx = null;
+    private volatile ServerInfo info = null;
     // private Vector<Thread> socketWatchers = new Vector<Thread>();
     private int pout;
 
@@ -160,17 +195,48 @@ class ConnectionImpl implements Connection {
     protected int crlfProtoBytesLen = 0;
 
     protected Statistics stats = null;
+    // Set while the connection's MBean is registered.
+    private ObjectName mxbeanName;
     private ArrayList<Channel<Boolean>> pongs = null;
 
-    private ExecutorService cbexec =
-            Executors.newSingleThreadExecutor(new NATSThreadFactory(THREAD_POOL));
+    private ExecutorService cbexec;
     // private ExecutorService executor =
     // Executors.newCachedThreadPool(new NATSThreadFactory(THREAD_POOL));
     private ScheduledExecutorService ptmr = null;
     private Phaser phaser = new Phaser();
-    private Channel<Boolean> fch = new Channel<Boolean>(FLUSH_CHAN_SIZE);
     private List<Thread> threads = new ArrayList<Thread>();
 
+    // When the options carry an event loop group, reads, flushes and the ping
+    // timer run on a shared event loop instead of this connection's own threads.
+    private EventLoop loop = null;
+    // The group the loop belongs to, which the connection keeps a hold on
+    // until it is closed.
+    private EventLoopGroup loopGroup = null;
+    // The shared dispatcher of the asynchronous subscriptions, which the
+    // connection keeps a hold on from the first one until it is closed.
+    private Dispatcher dispatcher = null;
+    private volatile EventLoop.Registration loopReg = null;
+    private EventLoop.Timer loopPingTimer = null;
+    private final AtomicBoolean loopFlushPending = new AtomicBoolean(false);
+    // Where loopBatchReady() is in holding back a flush; loop thread only.
+    private boolean loopBatching = false;
+    private long loopBatchSeen = 0L;
+    private long loopBatchDeadline = 0L;
+    private final Runnable loopFlush = new Runnable() {
+        public void run() {
+            loopFlush();
+        }
+    };
+
+    // When the options ask for request multiplexing, every request gets a
+    // token under one wildcard inbox, and a single subscription hands the
+    // replies to the waiting requests.
+    private volatile String respMuxPrefix = null;
+    private AsyncSubscriptionImpl respMux = null;
+    private final AtomicLong respToken = new AtomicLong();
+    private final ConcurrentHashMap<String, CompletableFuture<Message>> respMap =
+            new ConcurrentHashMap<String, CompletableFuture<Message>>();
+
     ConnectionImpl() {}
 
     ConnectionImpl(Options opts) {
@@ -184,11 +250,18 @@ class ConnectionImpl implements Connection {
         this.nc = this;
         this.opts = opts;
         this.stats = new Statistics();
+        this.cbexec = Executors.newSingleThreadExecutor(threadFactory(THREAD_POOL));
+        if (opts.isZeroCopy()) {
+            this.readPool = new BufferPool(DEFAULT_BUF_SIZE, READ_POOL_SIZE);
+        }
+        if (opts.getSubjectCacheSize() > 0) {
+            this.subjectCache = new SubjectCache(opts.getSubjectCacheSize(), stats);
+        }
         // this.msgArgs = new MsgArg();
         if (tcpconn != null) {
             this.conn = tcpconn;
         } else {
-            this.conn = new TCPConnection();
+            this.conn = newTcpConnection();
         }
 
         sidCounter.set(0);
@@ -203,9 +276,6 @@ class ConnectionImpl implements Connection {
         crlfProtoBytes = _CRLF_.getBytes();
         crlfProtoBytesLen = crlfProtoBytes.length;
 
-        // predefine the start of the publish protocol message.
-        buildPublishProtocolBuffer(Parser.MAX_CONTROL_LINE_SIZE);
-
         setupServerPool();
     }
 
@@ -233,13 +303,6 @@ class ConnectionImpl implements Connection {
         return getProperties(is);
     }
 
-    private void buildPublishProtocolBuffer(int size) {
-        pubProtoBuf = ByteBuffer.allocate(size);
-        pubProtoBuf.put(pubPrimBytes, 0, pubPrimBytesLen);
-        pubProtoBuf.mark();
-        // System.arraycopy(pubPrimBytes, 0, pubProtoBuf, 0, pubPrimBytesLen);
-    }
-
 
     // Create the server pool using the options given.
     // We will place a Url option first, followed by any
@@ -378,6 +441,10 @@ class ConnectionImpl implements Connection {
                     throw new Error("Unexpected error", returnedErr);
                 }
             }
+
+            if (opts.isJmxEnabled()) {
+                mxbeanName = MXBeans.register(this);
+            }
         } finally {
             mu.unlock();
         }
@@ -399,7 +466,7 @@ class ConnectionImpl implements Connection {
         try {
             logger.trace("Opening {}", srv.url);
             if (conn == null) {
-                conn = new TCPConnection();
+                conn = newTcpConnection();
             }
             conn.open(srv.url.getHost(), srv.url.getPort(), opts.getConnectionTimeout());
             logger.trace("Opened {}", srv.url);
@@ -416,10 +483,29 @@ class ConnectionImpl implements Connection {
                 /* NOOP */
             }
         }
-        bw = conn.getBufferedOutputStream(DEFAULT_STREAM_BUF_SIZE);
+        bw = getConnOutputStream(DEFAULT_STREAM_BUF_SIZE);
         br = conn.getBufferedInputStream(DEFAULT_STREAM_BUF_SIZE);
     }
 
+    // The NIO transport buffers its own writes; the others are wrapped in a
+    // BufferedOutputStream.
+    private OutputStream getConnOutputStream(int size) {
+        if (conn instanceof NIOTCPConnection) {
+            return ((NIOTCPConnection) conn).getOutputStream(size);
+        }
+        return conn.getBufferedOutputStream(size);
+    }
+
+    // Creates the transport selected by the options: a java.nio SocketChannel
+    // when useNio is set or an event loop will service the connection,
+    // otherwise the blocking socket streams.
+    private TCPConnection newTcpConnection() {
+        if (opts != null && (opts.isUseNio() || opts.getEventLoopGroup() != null)) {
+            return new NIOTCPConnection();
+        }
+        return new TCPConnection();
+    }
+
     // This will clear any pending flush calls and release pending calls.
     // Lock is assumed to be held by the caller.
     private void clearPendingFlushCalls() {
@@ -467,11 +553,20 @@ class ConnectionImpl implements Connection {
             if (ptmr != null) {
                 ptmr.shutdownNow();
             }
+            detachFromEventLoop();
+            if (loopGroup != null) {
+                loopGroup.release();
+                loopGroup = null;
+            }
+            if (dispatcher != null) {
+                dispatcher.release();
+                dispatcher = null;
+            }
 
             // Go ahead and make sure we have flushed the outbound
             if (conn != null) {
                 try {
-                    bw.flush();
+                    sealAndFlush();
                 } catch (IOException e) {
                     /* NOOP */
                 }
@@ -489,8 +584,18 @@ class ConnectionImpl implements Connection {
                 // Mark connection closed in subscription
                 sub.connClosed = true;
                 sub.mu.unlock();
+                MXBeans.unregister(sub.mxbeanName);
+                sub.mxbeanName = null;
             }
             subs.clear();
+            MXBeans.unregister(mxbeanName);
+            mxbeanName = null;
+            if (respMux != null) {
+                // Nobody else holds the reply subscription to close it.
+                respMux.disable();
+                respMux = null;
+            }
+            failPendingRequests();
 
             // perform appropriate callback if needed for a
             // disconnect;
@@ -574,7 +679,7 @@ class ConnectionImpl implements Connection {
     private void makeTLSConn() throws IOException {
         conn.setTlsDebug(opts.isTlsDebug());
         conn.makeTLS(opts.getSSLContext());
-        bw = conn.getBufferedOutputStream(DEFAULT_BUF_SIZE);
+        bw = getConnOutputStream(DEFAULT_BUF_SIZE);
         br = conn.getBufferedInputStream(DEFAULT_BUF_SIZE);
     }
 
@@ -600,6 +705,14 @@ class ConnectionImpl implements Connection {
     // processPing will send an immediate pong protocol response to the
     // server. The server uses this mechanism to detect dead clients.
     protected void processPing() {
+        if (inEventLoop()) {
+            runOffLoop(new Runnable() {
+                public void run() {
+                    processPing();
+                }
+            });
+            return;
+        }
         try {
             sendProto(pongProtoBytes, pongProtoBytesLen);
         } catch (IOException e) {
@@ -611,6 +724,14 @@ class ConnectionImpl implements Connection {
     // processPong is used to process responses to the client's ping
     // messages. We use pings for the flush mechanism as well.
     protected void processPong() {
+        if (inEventLoop()) {
+            runOffLoop(new Runnable() {
+                public void run() {
+                    processPong();
+                }
+            });
+            return;
+        }
         logger.trace("Processing PONG");
         Channel<Boolean> ch = new Channel<Boolean>(1);
         mu.lock();
@@ -650,7 +771,15 @@ class ConnectionImpl implements Connection {
     // processOpError handles errors from reading or parsing the protocol.
     // This is where disconnect/reconnect is initially handled.
     // The lock should not be held entering this function.
-    private void processOpError(Exception err) {
+    void processOpError(final Exception err) {
+        if (inEventLoop()) {
+            runOffLoop(new Runnable() {
+                public void run() {
+                    processOpError(err);
+                }
+            });
+            return;
+        }
         logger.trace("processOpError(e={}) state={} reconnectAllowed={} ", err.getClass().getName(),
                 status, opts.isReconnectAllowed());
         mu.lock();
@@ -666,10 +795,11 @@ class ConnectionImpl implements Connection {
                 if (ptmr != null) {
                     ptmr.shutdownNow();
                 }
+                detachFromEventLoop();
 
                 if (this.conn != null) {
                     try {
-                        bw.flush();
+                        sealAndFlush();
                     } catch (IOException e1) {
                         logger.error("I/O error during flush", e1);
                     }
@@ -953,6 +1083,16 @@ class ConnectionImpl implements Connection {
     // processErr processes any error messages from the server and
     // sets the connection's lastError.
     protected void processErr(ByteBuffer error) {
+        if (inEventLoop()) {
+            // The parser reuses the buffer, so copy the text out first.
+            final ByteBuffer copy = ByteBuffer.wrap(Parser.bufToString(error).getBytes());
+            runOffLoop(new Runnable() {
+                public void run() {
+                    processErr(copy);
+                }
+            });
+            return;
+        }
         // boolean doCBs = false;
         NATSException ex = null;
         String err = normalizeErr(error);
@@ -1135,25 +1275,38 @@ class ConnectionImpl implements Connection {
         // create and start threads
         for (final Runnable task : tasks) {
             phaser.register();
-            new Thread() {
+            threadFactory(THREAD_POOL).newThread(new Runnable() {
                 public void run() {
                     phaser.arriveAndAwaitAdvance(); // await all creation
                     task.run();
                     phaser.arriveAndDeregister();
                 }
-            }.start();
+            }).start();
         }
 
         // allow threads to start and deregister self
         phaser.arriveAndDeregister();
     }
 
+    // Returns a factory for the connection's own threads, which are virtual
+    // threads if the options ask for them and the JDK has them.
+    ThreadFactory threadFactory(String name) {
+        return NATSThreadFactory.newThreadFactory(name, opts.isUseVirtualThreads());
+    }
+
     protected void spinUpSocketWatchers() {
         logger.trace("Spinning up threads");
         // Make sure everything has exited.
         if (phaser.getPhase() != 0) {
             waitForExits();
         }
+        startCoalescing();
+
+        if (attachToEventLoop()) {
+            resetPingTimer();
+            return;
+        }
+
         List<Runnable> tasks = new ArrayList<Runnable>();
 
         tasks.add(new Runnable() {
@@ -1181,6 +1334,228 @@ class ConnectionImpl implements Connection {
 
     }
 
+    // Hands the connection's socket to one of the shared event loops, if the
+    // options carry an event loop group. Only plain NIO connections can be
+    // multiplexed; anything else falls back to the readloop and flusher threads.
+    private boolean attachToEventLoop() {
+        EventLoopGroup group = opts.getEventLoopGroup();
+        if (group == null || !(conn instanceof NIOTCPConnection)) {
+            return false;
+        }
+        NIOTCPConnection nioConn = (NIOTCPConnection) conn;
+        if (nioConn.isSecure() || nioConn.getChannel() == null) {
+            return false;
+        }
+        if (loop == null) {
+            if (!group.retain()) {
+                logger.debug("Event loop group is shut down, using threads");
+                return false;
+            }
+            loopGroup = group;
+            loop = group.next();
+        }
+        try {
+            nioConn.configureNonBlocking();
+        } catch (IOException e) {
+            logger.debug("Couldn't switch to non-blocking mode, using threads", e);
+            return false;
+        }
+        this.ps = parser.ps;
+        LoopReader reader = new LoopReader(nioConn, br);
+        loopReg = loop.register(nioConn.getChannel(), reader);
+        reader.reg = loopReg;
+        nioConn.attachToLoop(loop, loopReg);
+        logger.trace("Attached to event loop");
+        return true;
+    }
+
+    // Stops servicing the connection from the event loop. The lock is assumed
+    // to be held by the caller.
+    private void detachFromEventLoop() {
+        if (loopReg != null) {
+            loopReg.cancel();
+            loopReg = null;
+            if (conn instanceof NIOTCPConnection) {
+                ((NIOTCPConnection) conn).detachFromLoop();
+            }
+        }
+        if (loopPingTimer != null) {
+            loopPingTimer.cancel();
+            loopPingTimer = null;
+        }
+    }
+
+    // True on the thread of the event loop servicing this connection. From
+    // there, anything that takes the connection lock is handed to the
+    // connection's executor, since a lock held by a publisher would stall
+    // every other connection on the loop.
+    private boolean inEventLoop() {
+        EventLoop loop = this.loop;
+        return loop != null && loop.inLoop();
+    }
+
+    private void runOffLoop(Runnable task) {
+        try {
+            cbexec.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Closed already; nothing left to do.
+        }
+    }
+
+    // The event loop's equivalent of one pass of the flusher thread. Like the
+    // flusher it drains the write coalescer without the connection lock, and
+    // it never waits: not for a burst of writes to end, which it checks on
+    // each pass of the loop instead, not for a writer that is draining the
+    // coalescer itself, which kicks the flusher again when done, nor for the
+    // socket, which calls back through LoopReader.onWritable() once it has
+    // taken the backlog.
+    private void loopFlush() {
+        OutputStream bw = this.bw;
+        if (loopReg == null || status != ConnState.CONNECTED
+                || !(bw instanceof CoalescingOutputStream)) {
+            loopBatching = false;
+            loopFlushPending.set(false);
+            return;
+        }
+        CoalescingOutputStream cos = (CoalescingOutputStream) bw;
+        if (!loopBatchReady(cos)) {
+            loop.execute(loopFlush);
+            return;
+        }
+        loopFlushPending.set(false);
+        OutputStream out = cos.getOutputStream();
+        if (out instanceof NIOTCPConnection.ChannelOutputStream
+                && ((NIOTCPConnection.ChannelOutputStream) out).isBacklogged()) {
+            return;
+        }
+        try {
+            if (cos.tryFlush()) {
+                stats.incrementFlushes();
+            }
+        } catch (IOException e) {
+            logger.error("I/O exception encountered during flush", e);
+        }
+    }
+
+    // awaitBatch() for the event loop: rather than spinning until the batch is
+    // ready, it says whether it is, and is asked again on the next pass of the
+    // loop if not, so the loop goes on serving its other connections while a
+    // burst builds up. The same batch size and max delay apply.
+    private boolean loopBatchReady(CoalescingOutputStream out) {
+        long writes = out.getWriteCount();
+        if (!loopBatching) {
+            long maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(opts.getMaxFlushDelayMicros());
+            if (maxDelayNanos <= 0 || out.pending() >= opts.getFlushBatchSize()) {
+                return true;
+            }
+            loopBatching = true;
+            loopBatchSeen = writes;
+            loopBatchDeadline = System.nanoTime() + maxDelayNanos;
+            return false;
+        }
+        if (writes == loopBatchSeen || out.pending() >= opts.getFlushBatchSize()
+                || System.nanoTime() - loopBatchDeadline >= 0) {
+            loopBatching = false;
+            return true;
+        }
+        loopBatchSeen = writes;
+        return false;
+    }
+
+    // Reads whatever the socket has on the event loop thread and feeds it to
+    // the parser; the event loop's equivalent of readLoop(). It also writes
+    // out what the socket couldn't take earlier once it becomes writable.
+    private class LoopReader implements EventLoop.Handler {
+        private final NIOTCPConnection nioConn;
+        private final SocketChannel channel;
+        private final BufferedInputStream in;
+        private PooledBuffer pbuf = null;
+        private byte[] buffer = null;
+        private ByteBuffer view = null;
+        volatile EventLoop.Registration reg = null;
+
+        LoopReader(NIOTCPConnection nioConn, BufferedInputStream in) {
+            this.nioConn = nioConn;
+            this.channel = nioConn.getChannel();
+            this.in = in;
+            if (readPool == null) {
+                buffer = new byte[DEFAULT_BUF_SIZE];
+                view = ByteBuffer.wrap(buffer);
+            }
+        }
+
+        private void nextBuffer() {
+            if (readPool != null) {
+                PooledBuffer next = nextReadBuffer(pbuf);
+                if (next != pbuf) {
+                    pbuf = next;
+                    buffer = next.array();
+                    view = ByteBuffer.wrap(buffer);
+                }
+            }
+        }
+
+        public void onReadable() {
+            // status is volatile, so the check needs no lock.
+            ConnState state = status;
+            if (state == ConnState.CLOSED || state == ConnState.RECONNECTING) {
+                ps = parser.new ParseState();
+                return;
+            }
+
+            try {
+                int len;
+                // Anything read ahead during the connect handshake comes first.
+                while (in.available() > 0) {
+                    nextBuffer();
+                    len = in.read(buffer, 0, Math.min(in.available(), buffer.length));
+                    parser.parse(buffer, len);
+                }
+                // Drain at most one buffer's worth per wakeup so the other
+                // connections on this loop get their turn.
+                nextBuffer();
+                view.clear();
+                len = channel.read(view);
+                if (len == -1) {
+                    throw new IOException(ERR_STALE_CONNECTION);
+                }
+                if (len > 0) {
+                    parser.parse(buffer, len);
+                }
+            } catch (IOException | ParseException e) {
+                logger.trace("Exception in event loop read: ConnState was {}", status, e);
+                fail(e);
+            }
+        }
+
+        public void onWritable() {
+            try {
+                if (nioConn.writeBacklog()) {
+                    kickFlusher();
+                }
+            } catch (IOException e) {
+                logger.trace("Exception in event loop write: ConnState was {}", status, e);
+                fail(e);
+            }
+        }
+
+        public void onError(IOException err) {
+            fail(err);
+        }
+
+        // Stops watching the socket, which would otherwise keep reporting
+        // the error, until processOpError() gets to run off the loop.
+        private void fail(Exception err) {
+            EventLoop.Registration reg = this.reg;
+            if (reg != null) {
+                reg.cancel();
+            }
+            if (status != ConnState.CLOSED) {
+                processOpError(err);
+            }
+        }
+    }
+
     protected Thread go(final Runnable task, final String name, final String group,
             final Phaser ph) {
         NATSThread.setDebug(true);
@@ -1328,6 +1703,20 @@ class ConnectionImpl implements Connection {
         }
     }
 
+    // Returns a read buffer that no delivered message points into, reusing
+    // the current one when possible, and makes it the one processMsg() will
+    // hand out views of.
+    private PooledBuffer nextReadBuffer(PooledBuffer buf) {
+        if (buf == null || !buf.isExclusive()) {
+            if (buf != null) {
+                buf.release();
+            }
+            buf = readPool.acquire();
+        }
+        readBuf = buf;
+        return buf;
+    }
+
     protected void readLoop() {
         Parser parser = null;
         int len;
@@ -1344,7 +1733,11 @@ class ConnectionImpl implements Connection {
         }
 
         // Stack based buffer.
-        byte[] buffer = new byte[DEFAULT_BUF_SIZE];
+        PooledBuffer pbuf = null;
+        byte[] buffer = null;
+        if (readPool == null) {
+            buffer = new byte[DEFAULT_BUF_SIZE];
+        }
 
         while (true) {
             mu.lock();
@@ -1362,6 +1755,10 @@ class ConnectionImpl implements Connection {
                 break;
             }
 
+            if (readPool != null) {
+                pbuf = nextReadBuffer(pbuf);
+                buffer = pbuf.array();
+            }
             try {
                 len = br.read(buffer, 0, DEFAULT_BUF_SIZE);
                 if (len == -1) {
@@ -1376,6 +1773,10 @@ class ConnectionImpl implements Connection {
                 break;
             }
         }
+        if (pbuf != null) {
+            readBuf = null;
+            pbuf.release();
+        }
 
         mu.lock();
         this.ps = null;
@@ -1431,38 +1832,29 @@ class ConnectionImpl implements Connection {
         // data);
         // logger.trace("msg = [{}]", new String(data));
 
-        boolean maxReached = false;
-        SubscriptionImpl sub;
-
-        mu.lock();
-        try {
-            stats.incrementInMsgs();
-            stats.incrementInBytes(parser.ps.ma.size);
-
-            sub = subs.get(ps.ma.sid);
-            if (sub == null) {
-                return;
-            }
+        // This runs for every inbound message, so it takes no locks: the sid
+        // lookup is lock-free and the subscription's counters are atomic.
+        stats.incrementInMsgs();
+        stats.incrementInBytes(ps.ma.size);
 
-            sub.mu.lock();
-            try {
-                maxReached = sub.tallyMessage(ps.ma.size);
-                if (!maxReached) {
-                    Message msg = new Message(ps.ma, sub, data, offset, length);
-
-                    sub.addMessage(msg);
-                } // maxreached == false
-            } // lock s.mu
-            finally {
-                sub.mu.unlock();
-            }
-        } // lock conn.mu
-        finally {
-            mu.unlock();
+        SubscriptionImpl sub = subs.get(ps.ma.sid);
+        if (sub == null) {
+            return;
         }
-        if (maxReached) {
+
+        if (sub.tallyMessage(ps.ma.size)) {
             removeSub(sub);
+            return;
+        }
+
+        Message msg;
+        PooledBuffer pbuf = readBuf;
+        if (pbuf != null && data == pbuf.array()) {
+            msg = sub.newMessage(ps.ma, pbuf, offset, length);
+        } else {
+            msg = sub.newMessage(ps.ma, data, offset, length);
         }
+        sub.addMessage(msg);
     }
 
     void removeSub(SubscriptionImpl sub) {
@@ -1484,6 +1876,8 @@ class ConnectionImpl implements Connection {
         } finally {
             sub.getLock().unlock();
         }
+        MXBeans.unregister(sub.mxbeanName);
+        sub.mxbeanName = null;
     }
 
     // processSlowConsumer will set SlowConsumer state and fire the
@@ -1564,7 +1958,16 @@ class ConnectionImpl implements Connection {
                     ptmr.shutdownNow();
                 }
 
-                ptmr = Executors.newSingleThreadScheduledExecutor(new NATSThreadFactory("pinger"));
+                if (loopReg != null) {
+                    if (loopPingTimer != null) {
+                        loopPingTimer.cancel();
+                    }
+                    loopPingTimer = loop.schedule(pingRunnable, opts.getPingInterval(),
+                            opts.getPingInterval(), TimeUnit.MILLISECONDS);
+                    return;
+                }
+
+                ptmr = Executors.newSingleThreadScheduledExecutor(threadFactory("pinger"));
                 ptmr.scheduleAtFixedRate(pingRunnable, opts.getPingInterval(),
                         opts.getPingInterval(), TimeUnit.MILLISECONDS);
             }
@@ -1577,6 +1980,14 @@ class ConnectionImpl implements Connection {
     // ping to the server. Will also check that we have received
     // responses from the server.
     protected void processPingTimer() {
+        if (inEventLoop()) {
+            runOffLoop(new Runnable() {
+                public void run() {
+                    processPingTimer();
+                }
+            });
+            return;
+        }
         mu.lock();
         if (status != ConnState.CONNECTED) {
             mu.unlock();
@@ -1642,32 +2053,59 @@ class ConnectionImpl implements Connection {
 
     protected void kickFlusher() {
         if (bw != null) {
-            if (fch.getCount() == 0) {
-                fch.add(true);
+            if (loopReg != null) {
+                // loopFlush() holds the flush back for the batch size and
+                // max flush delay, as the flusher thread does.
+                if (loopFlushPending.compareAndSet(false, true)) {
+                    loop.execute(loopFlush);
+                }
+                return;
+            }
+            if (!flushKicked.get() && !flushKicked.getAndSet(true)) {
+                Thread flusher = flusherThread;
+                if (flusher != null) {
+                    LockSupport.unpark(flusher);
+                }
             }
         }
     }
 
 
     private void setFlusherDone(boolean value) {
-        flusherLock.lock();
-        try {
-            flusherDone = value;
+        flusherDone = value;
 
-            if (flusherDone) {
-                kickFlusher();
+        if (flusherDone) {
+            kickFlusher();
+            Thread flusher = flusherThread;
+            if (flusher != null) {
+                LockSupport.unpark(flusher);
             }
-        } finally {
-            flusherLock.unlock();
         }
     }
 
     private boolean isFlusherDone() {
-        flusherLock.lock();
-        try {
-            return flusherDone;
-        } finally {
-            flusherLock.unlock();
+        return flusherDone;
+    }
+
+    // Flushes the socket stream before it is let go. Sealing the coalescer
+    // sends publishers that passed the CONNECTED check just before to the
+    // locked path, rather than into a stream that won't be flushed again.
+    // The lock must be held.
+    private void sealAndFlush() throws IOException {
+        if (bw instanceof CoalescingOutputStream) {
+            ((CoalescingOutputStream) bw).seal();
+        }
+        bw.flush();
+    }
+
+    // Installs the write coalescer in front of the socket stream. The flusher
+    // drains it without holding the connection lock.
+    private void startCoalescing() {
+        if (bw != null && !(bw instanceof CoalescingOutputStream)) {
+            CoalescingOutputStream cos = new CoalescingOutputStream(bw,
+                    Math.max(DEFAULT_BUF_SIZE, opts.getFlushBatchSize()));
+            cos.setGatherThreshold(opts.getGatherWriteThreshold());
+            bw = cos;
         }
     }
 
@@ -1675,7 +2113,6 @@ class ConnectionImpl implements Connection {
     protected void flusher() {
         OutputStream bw = null;
         TCPConnection conn = null;
-        Channel<Boolean> fch = null;
 
         setFlusherDone(false);
 
@@ -1683,47 +2120,60 @@ class ConnectionImpl implements Connection {
         mu.lock();
         bw = this.bw;
         conn = this.conn;
-        fch = this.fch;
         mu.unlock();
 
         if (conn == null || bw == null || !conn.isConnected()) {
             return;
         }
 
+        flusherThread = Thread.currentThread();
         while (!isFlusherDone()) {
             // Wait to be triggered
-            if (!fch.get()) {
-                return;
+            while (!flushKicked.get()) {
+                LockSupport.park(this);
+                if (isFlusherDone()) {
+                    return;
+                }
             }
 
-            // Be reasonable about how often we flush
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException e) {
-                logger.debug("flusher loop interrupted", e);
-            }
-
-            // try {
-            // if (!mu.tryLock(1, TimeUnit.MILLISECONDS)) {
-            // // System.err.println("FLUSHER CONTINUING");
-            // continue;
-            // }
-            // } catch (InterruptedException e1) {
-            // }
-            mu.lock();
-            try {
+            if (bw instanceof CoalescingOutputStream) {
+                awaitBatch((CoalescingOutputStream) bw);
+            }
+            flushKicked.set(false);
 
-                // Check to see if we should bail out.
-                if (!isConnected() || isConnecting() || bw != this.bw || conn != this.conn) {
-                    return;
-                }
+            // Check to see if we should bail out.
+            if (status != ConnState.CONNECTED || bw != this.bw || conn != this.conn) {
+                return;
+            }
+            try {
                 bw.flush();
                 stats.incrementFlushes();
             } catch (IOException e) {
-                logger.error("I/O eception encountered during flush", e);
-            } finally {
-                mu.unlock();
+                logger.error("I/O exception encountered during flush", e);
+            }
+        }
+    }
+
+    // Holds a flush back while publishers are still writing, so that a burst
+    // goes out in a few large socket writes. Returns as soon as the batch size
+    // is reached, a pass goes by with no new writes, or the max delay is up. A
+    // lone write is therefore flushed right away.
+    private void awaitBatch(CoalescingOutputStream out) {
+        int batchSize = opts.getFlushBatchSize();
+        long maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(opts.getMaxFlushDelayMicros());
+        if (maxDelayNanos <= 0 || out.pending() >= batchSize) {
+            return;
+        }
+        long deadline = System.nanoTime() + maxDelayNanos;
+        long seen = out.getWriteCount();
+        while (true) {
+            Thread.yield();
+            long writes = out.getWriteCount();
+            if (writes == seen || out.pending() >= batchSize
+                    || System.nanoTime() - deadline >= 0) {
+                return;
             }
+            seen = writes;
         }
     }
 
@@ -1782,6 +2232,7 @@ class ConnectionImpl implements Connection {
             logger.trace("flush(int timeout): before throw");
             throw err;
         }
+        stats.recordFlushLatency(System.nanoTime() - t0);
         logger.trace("flush(int timeout): returning without error");
     }
 
@@ -1855,6 +2306,9 @@ class ConnectionImpl implements Connection {
             if (async) {
                 sub = new AsyncSubscriptionImpl(this, subj, queue, cb, opts.getMaxPendingMsgs(),
                         opts.getMaxPendingBytes());
+                ((AsyncSubscriptionImpl) sub).setMessagePoolSize(opts.getMessagePoolSize());
+                ((AsyncSubscriptionImpl) sub).setWaitStrategy(opts.getSubscriptionWaitStrategy());
+                ((AsyncSubscriptionImpl) sub).setDispatcher(retainDispatcher());
             } else {
                 sub = new SyncSubscriptionImpl(this, subj, queue, opts.getMaxPendingMsgs(),
                         opts.getMaxPendingBytes());
@@ -1877,6 +2331,16 @@ class ConnectionImpl implements Connection {
         return sub;
     }
 
+    // Returns the dispatcher for a new asynchronous subscription, or null if
+    // there is none or it is shut down already, in which case the
+    // subscription uses its own thread. The lock must be held.
+    private Dispatcher retainDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = SharedPool.share(opts.getDispatcher());
+        }
+        return dispatcher;
+    }
+
     @Override
     public AsyncSubscription subscribeAsync(String subject, String queue, MessageHandler cb) {
         AsyncSubscription sub = null;
@@ -1889,6 +2353,9 @@ class ConnectionImpl implements Connection {
 
             sub = new AsyncSubscriptionImpl(this, subject, queue, null, opts.getMaxPendingMsgs(),
                     opts.getMaxPendingBytes());
+            ((AsyncSubscriptionImpl) sub).setMessagePoolSize(opts.getMessagePoolSize());
+            ((AsyncSubscriptionImpl) sub).setWaitStrategy(opts.getSubscriptionWaitStrategy());
+            ((AsyncSubscriptionImpl) sub).setDispatcher(retainDispatcher());
 
             addSubscription((SubscriptionImpl) sub);
 
@@ -1921,6 +2388,9 @@ class ConnectionImpl implements Connection {
     private void addSubscription(SubscriptionImpl sub) {
         sub.setSid(sidCounter.incrementAndGet());
         subs.put(sub.getSid(), sub);
+        if (mxbeanName != null) {
+            sub.mxbeanName = MXBeans.register(mxbeanName, sub);
+        }
         logger.trace("Successfully added subscription to {} [{}]", sub.getSubject(), sub.getSid());
         // if (logger.isDebugEnabled())
         // printSubs(this);
@@ -1937,28 +2407,102 @@ class ConnectionImpl implements Connection {
     }
 
     // Use low level primitives to build the protocol for the publish
-    // message.
-    private void writePublishProto(ByteBuffer buffer, byte[] subject, byte[] reply, int msgSize) {
-        pubProtoBuf.put(subject, 0, subject.length);
+    // message into the calling thread's scratch buffer, growing it if the
+    // subject and reply don't fit. Returns the length of the protocol line.
+    private int writePublishProto(byte[] subject, byte[] reply, int msgSize) {
+        byte[] buf = pubProtoBuf(publishProtoSize(subject, reply));
+        return encodePublishProto(buf, 0, subject, reply, msgSize);
+    }
+
+    // Returns the calling thread's scratch buffer for PUB lines, grown to at
+    // least size bytes.
+    private static byte[] pubProtoBuf(int size) {
+        byte[] buf = pubProtoBufs.get();
+        if (buf.length < size) {
+            // We can get here if we have very large subjects.
+            // Expand with some room to spare.
+            buf = new byte[size + Parser.MAX_CONTROL_LINE_SIZE];
+            pubProtoBufs.set(buf);
+        }
+        return buf;
+    }
+
+    // The most bytes a PUB line for these subjects can take.
+    private int publishProtoSize(byte[] subject, byte[] reply) {
+        return pubPrimBytesLen + subject.length + (reply != null ? reply.length + 1 : 0) + 1
+                + 10 + crlfProtoBytesLen;
+    }
+
+    // The most bytes a PUB line for these ASCII subjects can take.
+    private int publishProtoSize(String subject, String reply) {
+        return pubPrimBytesLen + subject.length() + (reply != null ? reply.length() + 1 : 0) + 1
+                + 10 + crlfProtoBytesLen;
+    }
+
+    // Encodes a PUB line into buf at idx, returning the index past its end.
+    private int encodePublishProto(byte[] buf, int idx, byte[] subject, byte[] reply,
+            int msgSize) {
+        System.arraycopy(pubPrimBytes, 0, buf, idx, pubPrimBytesLen);
+        idx += pubPrimBytesLen;
+        System.arraycopy(subject, 0, buf, idx, subject.length);
+        idx += subject.length;
         if (reply != null) {
-            pubProtoBuf.put((byte) ' ');
-            pubProtoBuf.put(reply, 0, reply.length);
+            buf[idx++] = ' ';
+            System.arraycopy(reply, 0, buf, idx, reply.length);
+            idx += reply.length;
+        }
+        return encodeMsgSize(buf, idx, msgSize);
+    }
+
+    // Encodes a PUB line straight from the subject strings, without going
+    // through String.getBytes(). Returns the index past its end, or -1 if
+    // the subjects aren't plain ASCII and so need the platform charset.
+    private int encodePublishProto(byte[] buf, int idx, String subject, String reply,
+            int msgSize) {
+        System.arraycopy(pubPrimBytes, 0, buf, idx, pubPrimBytesLen);
+        idx = encodeAscii(subject, buf, idx + pubPrimBytesLen);
+        if (idx >= 0 && reply != null) {
+            buf[idx++] = ' ';
+            idx = encodeAscii(reply, buf, idx);
+        }
+        if (idx < 0) {
+            return -1;
         }
-        pubProtoBuf.put((byte) ' ');
+        return encodeMsgSize(buf, idx, msgSize);
+    }
 
-        byte[] bytes = new byte[12];
-        int idx = bytes.length;
-        if (msgSize > 0) {
-            for (int l = msgSize; l > 0; l /= 10) {
-                idx--;
-                bytes[idx] = digits[l % 10];
+    // Copies an ASCII string into buf at idx, returning the index past its
+    // end, or -1 at the first non-ASCII character.
+    private static int encodeAscii(String str, byte[] buf, int idx) {
+        int len = str.length();
+        for (int i = 0; i < len; i++) {
+            char ch = str.charAt(i);
+            if (ch >= 0x80) {
+                return -1;
             }
-        } else {
-            idx -= 1;
-            bytes[idx] = digits[0];
+            buf[idx++] = (byte) ch;
         }
-        pubProtoBuf.put(bytes, idx, bytes.length - idx);
-        pubProtoBuf.put(crlfProtoBytes, 0, crlfProtoBytesLen);
+        return idx;
+    }
+
+    // Encodes the " <size>\r\n" ending of a PUB line into buf at idx,
+    // returning the index past its end.
+    private int encodeMsgSize(byte[] buf, int idx, int msgSize) {
+        buf[idx++] = ' ';
+
+        int ndigits = 1;
+        for (int l = msgSize / 10; l > 0; l /= 10) {
+            ndigits++;
+        }
+        int l = msgSize;
+        for (int i = idx + ndigits - 1; i >= idx; i--) {
+            buf[i] = digits[l % 10];
+            l /= 10;
+        }
+        idx += ndigits;
+
+        System.arraycopy(crlfProtoBytes, 0, buf, idx, crlfProtoBytesLen);
+        return idx + crlfProtoBytesLen;
     }
 
     // Used for handrolled itoa
@@ -1966,13 +2510,45 @@ class ConnectionImpl implements Connection {
 
     void _publish(byte[] subject, byte[] reply, byte[] data) throws IOException {
         int msgSize = (data != null) ? data.length : 0;
-        mu.lock();
-        try {
-            // Proactively reject payloads over the threshold set by server.
-            if (msgSize > info.getMaxPayload()) {
-                throw new IllegalArgumentException(ERR_MAX_PAYLOAD);
+
+        // Proactively reject payloads over the threshold set by server.
+        if (msgSize > info.getMaxPayload()) {
+            throw new IllegalArgumentException(ERR_MAX_PAYLOAD);
+        }
+
+        int protoLen = writePublishProto(subject, reply, msgSize);
+        byte[] proto = pubProtoBufs.get();
+        writePublish(proto, protoLen, data, msgSize, crlfProtoBytes, crlfProtoBytesLen, 1,
+                msgSize);
+    }
+
+    // Writes encoded PUB frames, given in up to three parts, as a single unit
+    // and accounts for the msgs messages of msgBytes payload bytes in them.
+    private void writePublish(byte[] head, int headLen, byte[] body, int bodyLen, byte[] tail,
+            int tailLen, int msgs, long msgBytes) throws IOException {
+        // Fast path: while connected, the coalescer is safe for concurrent
+        // writers, so publishers hand their message over without taking mu
+        // and the flusher is the only one writing to the socket.
+        OutputStream out = bw;
+        if (status == ConnState.CONNECTED && out instanceof CoalescingOutputStream) {
+            try {
+                ((CoalescingOutputStream) out).write(head, headLen, body, bodyLen, tail,
+                        tailLen);
+                kickFlusher();
+                countOutMsgs(msgs, msgBytes);
+                return;
+            } catch (CoalescingOutputStream.SealedException e) {
+                // A reconnect or close sealed the coalescer after our check.
+                // Nothing went out, so take the locked path, which sees the
+                // new state and stream.
+            } catch (IOException e) {
+                setLastError(e);
+                return;
             }
+        }
 
+        mu.lock();
+        try {
             // Since we have the lock, examine directly for a tiny performance
             // boost in fastpath
             if (_isClosed()) {
@@ -1994,29 +2570,19 @@ class ConnectionImpl implements Connection {
                 }
             }
 
-            // write our pubProtoBuf buffer to the buffered writer.
             try {
-                writePublishProto(pubProtoBuf, subject, reply, msgSize);
-            } catch (BufferOverflowException e) {
-                // We can get here if we have very large subjects.
-                // Expand with some room to spare.
-                int resizeAmount = Parser.MAX_CONTROL_LINE_SIZE + subject.length
-                        + (reply != null ? reply.length : 0);
-
-                buildPublishProtocolBuffer(resizeAmount);
-
-                writePublishProto(pubProtoBuf, subject, reply, msgSize);
-            }
-
-            try {
-                bw.write(pubProtoBuf.array(), 0, pubProtoBuf.position());
-                pubProtoBuf.position(pubPrimBytesLen);
-
-                if (msgSize > 0) {
-                    bw.write(data, 0, msgSize);
+                if (bw instanceof CoalescingOutputStream) {
+                    ((CoalescingOutputStream) bw).write(head, headLen, body, bodyLen, tail,
+                            tailLen);
+                } else {
+                    bw.write(head, 0, headLen);
+                    if (bodyLen > 0) {
+                        bw.write(body, 0, bodyLen);
+                    }
+                    if (tailLen > 0) {
+                        bw.write(tail, 0, tailLen);
+                    }
                 }
-
-                bw.write(crlfProtoBytes, 0, crlfProtoBytesLen);
             } catch (IOException e) {
                 setLastError(e);
                 return;
@@ -2024,13 +2590,72 @@ class ConnectionImpl implements Connection {
 
             kickFlusher();
 
-            stats.incrementOutMsgs();
-            stats.incrementOutBytes(msgSize);
+            countOutMsgs(msgs, msgBytes);
         } finally {
             mu.unlock();
         }
     }
 
+    private void countOutMsgs(int msgs, long msgBytes) {
+        if (msgs == 1) {
+            stats.incrementOutMsgs();
+        } else {
+            stats.incrementOutMsgs(msgs);
+        }
+        stats.incrementOutBytes(msgBytes);
+    }
+
+    @Override
+    public void publishBatch(List<Message> msgs) throws IOException {
+        long maxPayload = info.getMaxPayload();
+        for (Message msg : msgs) {
+            byte[] subject = msg.getSubjectBytes();
+            if (subject == null || subject.length == 0) {
+                throw new IllegalArgumentException(ERR_BAD_SUBJECT);
+            }
+            byte[] data = msg.getData();
+            if (data != null && data.length > maxPayload) {
+                throw new IllegalArgumentException(ERR_MAX_PAYLOAD);
+            }
+        }
+
+        byte[] buf = pubBatchBufs.get();
+        int len = 0;
+        int count = 0;
+        long bytes = 0;
+        for (Message msg : msgs) {
+            byte[] subject = msg.getSubjectBytes();
+            byte[] reply = msg.getReplyToBytes();
+            byte[] data = msg.getData();
+            int msgSize = (data != null) ? data.length : 0;
+            int frameSize = publishProtoSize(subject, reply) + msgSize + crlfProtoBytesLen;
+            if (len > 0 && len + frameSize > MAX_BATCH_CHUNK) {
+                writePublish(buf, len, null, 0, null, 0, count, bytes);
+                len = 0;
+                count = 0;
+                bytes = 0;
+            }
+            if (buf.length < len + frameSize) {
+                buf = Arrays.copyOf(buf, Math.max(len + frameSize, buf.length * 2));
+                if (buf.length <= MAX_BATCH_CHUNK) {
+                    pubBatchBufs.set(buf);
+                }
+            }
+            len = encodePublishProto(buf, len, subject, reply, msgSize);
+            if (msgSize > 0) {
+                System.arraycopy(data, 0, buf, len, msgSize);
+                len += msgSize;
+            }
+            System.arraycopy(crlfProtoBytes, 0, buf, len, crlfProtoBytesLen);
+            len += crlfProtoBytesLen;
+            count++;
+            bytes += msgSize;
+        }
+        if (len > 0) {
+            writePublish(buf, len, null, 0, null, 0, count, bytes);
+        }
+    }
+
     // protected void writeBuffer(ByteBuffer buffer, OutputStream stream) throws IOException {
     // WritableByteChannel channel = Channels.newChannel(stream);
     // channel.write(buffer);
@@ -2048,12 +2673,24 @@ class ConnectionImpl implements Connection {
             throw new IllegalArgumentException(ERR_BAD_SUBJECT);
         }
 
-        byte[] subjBytes = subject.getBytes();
-        byte[] replyBytes = null;
-        if (reply != null) {
-            replyBytes = reply.getBytes();
+        int msgSize = (data != null) ? data.length : 0;
+
+        // Proactively reject payloads over the threshold set by server.
+        if (msgSize > info.getMaxPayload()) {
+            throw new IllegalArgumentException(ERR_MAX_PAYLOAD);
         }
-        _publish(subjBytes, replyBytes, data);
+
+        // Subjects are nearly always ASCII, so encode them straight into the
+        // scratch buffer, which leaves nothing to allocate per publish.
+        byte[] proto = pubProtoBuf(publishProtoSize(subject, reply));
+        int protoLen = encodePublishProto(proto, 0, subject, reply, msgSize);
+        if (protoLen < 0) {
+            byte[] replyBytes = (reply != null) ? reply.getBytes() : null;
+            _publish(subject.getBytes(), replyBytes, data);
+            return;
+        }
+        writePublish(proto, protoLen, data, msgSize, crlfProtoBytes, crlfProtoBytesLen, 1,
+                msgSize);
     } // publish
 
     @Override
@@ -2066,8 +2703,70 @@ class ConnectionImpl implements Connection {
         _publish(msg.getSubjectBytes(), msg.getReplyToBytes(), msg.getData());
     }
 
+    @Override
+    public PreparedPublisher prepare(String subject) {
+        return prepare(subject, null);
+    }
+
+    @Override
+    public PreparedPublisher prepare(String subject, String reply) {
+        if (subject == null) {
+            throw new NullPointerException(ERR_BAD_SUBJECT);
+        }
+        if (subject.isEmpty()) {
+            throw new IllegalArgumentException(ERR_BAD_SUBJECT);
+        }
+
+        // "PUB <subject> [reply]", which publishPrepared() copies ahead of the
+        // size of each message.
+        byte[] subjBytes = subject.getBytes();
+        byte[] replyBytes = (reply != null) ? reply.getBytes() : null;
+        byte[] prefix = new byte[pubPrimBytesLen + subjBytes.length
+                + (replyBytes != null ? replyBytes.length + 1 : 0)];
+        System.arraycopy(pubPrimBytes, 0, prefix, 0, pubPrimBytesLen);
+        System.arraycopy(subjBytes, 0, prefix, pubPrimBytesLen, subjBytes.length);
+        if (replyBytes != null) {
+            int idx = pubPrimBytesLen + subjBytes.length;
+            prefix[idx++] = ' ';
+            System.arraycopy(replyBytes, 0, prefix, idx, replyBytes.length);
+        }
+        return new PreparedPublisherImpl(this, subject, reply, prefix);
+    }
+
+    // Publishes data behind a PUB line prefix encoded by prepare().
+    void publishPrepared(byte[] prefix, byte[] data) throws IOException {
+        int msgSize = (data != null) ? data.length : 0;
+
+        // Proactively reject payloads over the threshold set by server.
+        if (msgSize > info.getMaxPayload()) {
+            throw new IllegalArgumentException(ERR_MAX_PAYLOAD);
+        }
+
+        byte[] proto = pubProtoBuf(prefix.length + 1 + 10 + crlfProtoBytesLen);
+        System.arraycopy(prefix, 0, proto, 0, prefix.length);
+        int protoLen = encodeMsgSize(proto, prefix.length, msgSize);
+        writePublish(proto, protoLen, data, msgSize, crlfProtoBytes, crlfProtoBytesLen, 1,
+                msgSize);
+    }
+
     private Message _request(String subject, byte[] data, long timeout, TimeUnit unit)
             throws TimeoutException, IOException {
+        long t0 = System.nanoTime();
+        Message msg;
+        if (opts.isUseRequestMux()) {
+            msg = muxRequest(subject, data, timeout, unit);
+        } else {
+            msg = inboxRequest(subject, data, timeout, unit);
+        }
+        if (msg != null) {
+            stats.recordRequestLatency(System.nanoTime() - t0);
+        }
+        return msg;
+    }
+
+    // Sends a request with its own inbox subscription for the reply.
+    private Message inboxRequest(String subject, byte[] data, long timeout, TimeUnit unit)
+            throws TimeoutException, IOException {
         String inbox = newInbox();
         Message msg = null;
         SyncSubscription sub = subscribeSync(inbox, null);
@@ -2079,6 +2778,125 @@ class ConnectionImpl implements Connection {
         return msg;
     }
 
+    // Sends a request with a reply subject under the shared response inbox
+    // and waits for respMux to route the reply back to us.
+    private Message muxRequest(String subject, byte[] data, long timeout, TimeUnit unit)
+            throws TimeoutException, IOException {
+        String prefix = respMuxPrefix();
+        String token = nextRespToken();
+        CompletableFuture<Message> reply = new CompletableFuture<Message>();
+        respMap.put(token, reply);
+        try {
+            publish(subject, prefix + token, data);
+            if (timeout < 0) {
+                return reply.get();
+            }
+            return reply.get(timeout, unit);
+        } catch (TimeoutException e) {
+            throw new TimeoutException(ERR_TIMEOUT);
+        } catch (InterruptedException e) {
+            // Like a request on its own inbox, give up without a reply.
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            respMap.remove(token);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Message> requestAsync(String subject, byte[] data, long timeout) {
+        return requestAsync(subject, data, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<Message> requestAsync(String subject, byte[] data, long timeout,
+            TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be greater that 0.");
+        }
+        final long t0 = System.nanoTime();
+        final CompletableFuture<Message> reply = new CompletableFuture<Message>();
+        final String token = nextRespToken();
+        try {
+            String prefix = respMuxPrefix();
+            respMap.put(token, reply);
+            final TimerWheel.Timeout timer = TimerWheel.shared().schedule(new Runnable() {
+                public void run() {
+                    if (respMap.remove(token, reply)) {
+                        reply.completeExceptionally(new TimeoutException(ERR_TIMEOUT));
+                    }
+                }
+            }, timeout, unit);
+            reply.whenComplete(new BiConsumer<Message, Throwable>() {
+                public void accept(Message msg, Throwable err) {
+                    timer.cancel();
+                    if (msg != null) {
+                        stats.recordRequestLatency(System.nanoTime() - t0);
+                    }
+                }
+            });
+            publish(subject, prefix + token, data);
+        } catch (Exception e) {
+            respMap.remove(token);
+            reply.completeExceptionally(e);
+        }
+        return reply;
+    }
+
+    private String nextRespToken() {
+        return Long.toString(respToken.incrementAndGet(), 36);
+    }
+
+    // Returns the prefix of the shared response inbox, subscribing to it with
+    // the first request.
+    private String respMuxPrefix() {
+        mu.lock();
+        try {
+            if (respMux == null) {
+                respMuxPrefix = newInbox() + ".";
+                respMux = (AsyncSubscriptionImpl) subscribe(respMuxPrefix + "*", null,
+                        new MessageHandler() {
+                            public void onMessage(Message msg) {
+                                routeReply(msg);
+                            }
+                        });
+            }
+            return respMuxPrefix;
+        } finally {
+            mu.unlock();
+        }
+    }
+
+    // Completes the request waiting for a reply on respMux. Replies to
+    // requests that already gave up are dropped.
+    void routeReply(Message msg) {
+        String prefix = respMuxPrefix;
+        String subject = msg.getSubject();
+        if (prefix == null || !subject.startsWith(prefix)) {
+            return;
+        }
+        CompletableFuture<Message> reply = respMap.remove(subject.substring(prefix.length()));
+        if (reply != null) {
+            // The message now belongs to the requester.
+            msg.retain();
+            reply.complete(msg);
+        }
+    }
+
+    // Releases requests waiting on respMux when the connection closes.
+    private void failPendingRequests() {
+        for (CompletableFuture<Message> reply : respMap.values()) {
+            reply.completeExceptionally(new IllegalStateException(ERR_CONNECTION_CLOSED));
+        }
+        respMap.clear();
+    }
+
     @Override
     public Message request(String subject, byte[] data, long timeout)
             throws TimeoutException, IOException {
@@ -2334,7 +3152,7 @@ class ConnectionImpl implements Connection {
     }
 
     protected void setSubs(Map<Long, SubscriptionImpl> subs) {
-        this.subs = subs;
+        this.subs = (subs instanceof SidMap) ? (SidMap) subs : new SidMap(subs);
     }
 
     // for testing purposes
@@ -2356,14 +3174,6 @@ class ConnectionImpl implements Connection {
         return rv;
     }
 
-    protected void setFlushChannel(Channel<Boolean> fch) {
-        this.fch = fch;
-    }
-
-    protected Channel<Boolean> getFlushChannel() {
-        return fch;
-    }
-
     protected void setTcpConnection(TCPConnection conn) {
         this.conn = conn;
     }
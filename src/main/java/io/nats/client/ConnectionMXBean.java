@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+/**
+ * The JMX management interface of a {@code Connection}, registered when
+ * {@link ConnectionFactory#setJmxEnabled(boolean)} is set.
+ *
+ * @see Statistics
+ */
+public interface ConnectionMXBean {
+    /**
+     * @return the connection name, or {@code null} if none was set
+     */
+    String getName();
+
+    /**
+     * @return the URL of the server the connection is connected to, or {@code null} if it isn't
+     *         connected
+     */
+    String getConnectedUrl();
+
+    /**
+     * @return the connection state, e.g. {@code CONNECTED} or {@code RECONNECTING}
+     */
+    String getState();
+
+    /**
+     * @return the number of messages received on the connection
+     */
+    long getInMsgs();
+
+    /**
+     * @return the number of payload bytes received on the connection
+     */
+    long getInBytes();
+
+    /**
+     * @return the number of messages published on the connection
+     */
+    long getOutMsgs();
+
+    /**
+     * @return the number of payload bytes published on the connection
+     */
+    long getOutBytes();
+
+    /**
+     * @return the number of times the connection has reconnected
+     */
+    long getReconnects();
+
+    /**
+     * @return the number of times the connection's outbound buffer has been flushed to the
+     *         socket
+     */
+    long getFlushes();
+
+    /**
+     * @return the number of active subscriptions on the connection
+     */
+    int getSubscriptionCount();
+
+    /**
+     * Resets the connection's statistics.
+     */
+    void resetStats();
+}
@@ -273,6 +273,58 @@ public final class Constants {
      * This property is defined as String {@value #PROP_MAX_PENDING_BYTES}.
      */
     public static final String PROP_MAX_PENDING_BYTES = PFX + "maxpending.bytes";
+    /**
+     * This property is defined as String {@value #PROP_USE_NIO}.
+     */
+    public static final String PROP_USE_NIO = PFX + "nio";
+    /**
+     * This property is defined as String {@value #PROP_EVENT_LOOP_THREADS}.
+     */
+    public static final String PROP_EVENT_LOOP_THREADS = PFX + "eventloop.threads";
+    /**
+     * This property is defined as String {@value #PROP_FLUSH_BATCH_SIZE}.
+     */
+    public static final String PROP_FLUSH_BATCH_SIZE = PFX + "flush.batch.size";
+    /**
+     * This property is defined as String {@value #PROP_GATHER_WRITE_THRESHOLD}.
+     */
+    public static final String PROP_GATHER_WRITE_THRESHOLD = PFX + "gather.write.threshold";
+    /**
+     * This property is defined as String {@value #PROP_MAX_FLUSH_DELAY}.
+     */
+    public static final String PROP_MAX_FLUSH_DELAY = PFX + "flush.delay.max";
+    /**
+     * This property is defined as String {@value #PROP_ZERO_COPY}.
+     */
+    public static final String PROP_ZERO_COPY = PFX + "zerocopy";
+    /**
+     * This property is defined as String {@value #PROP_MESSAGE_POOL_SIZE}.
+     */
+    public static final String PROP_MESSAGE_POOL_SIZE = PFX + "subscription.msgpool";
+    /**
+     * This property is defined as String {@value #PROP_SUBJECT_CACHE_SIZE}.
+     */
+    public static final String PROP_SUBJECT_CACHE_SIZE = PFX + "subject.cache.size";
+    /**
+     * This property is defined as String {@value #PROP_SUBSCRIPTION_WAIT_STRATEGY}.
+     */
+    public static final String PROP_SUBSCRIPTION_WAIT_STRATEGY = PFX + "subscription.wait";
+    /**
+     * This property is defined as String {@value #PROP_DISPATCHER_THREADS}.
+     */
+    public static final String PROP_DISPATCHER_THREADS = PFX + "dispatcher.threads";
+    /**
+     * This property is defined as String {@value #PROP_USE_VIRTUAL_THREADS}.
+     */
+    public static final String PROP_USE_VIRTUAL_THREADS = PFX + "virtual.threads";
+    /**
+     * This property is defined as String {@value #PROP_USE_REQUEST_MUX}.
+     */
+    public static final String PROP_USE_REQUEST_MUX = PFX + "request.mux";
+    /**
+     * This property is defined as String {@value #PROP_JMX_ENABLED}.
+     */
+    public static final String PROP_JMX_ENABLED = PFX + "jmx.enabled";
 
     // Server error strings
     protected static final String SERVER_ERR_PARSER = "'Parser Error'";
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A fixed pool of worker threads shared by the asynchronous subscriptions of
+ * the connections created from one ConnectionFactory, in place of a feeder
+ * thread per subscription.
+ *
+ * <p>Each subscription gets a Mailbox around its message channel. The reader
+ * schedules the mailbox when it adds a message to an idle one, and a worker
+ * then delivers up to BATCH messages before handing the mailbox back to the
+ * pool, so a busy subscription can't starve the others. A mailbox is queued
+ * or running at most once at a time, which keeps each subscription's
+ * messages in order and its channel single-consumer.
+ */
+class Dispatcher extends SharedPool {
+    // Messages delivered per turn before the worker moves on.
+    static final int BATCH = 64;
+
+    private final ExecutorService workers;
+    private final int threads;
+
+    Dispatcher(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Dispatcher threads must be greater than 0");
+        }
+        this.threads = threads;
+        final ThreadFactory factory = new NATSThreadFactory("dispatcher");
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = factory.newThread(r);
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    int size() {
+        return threads;
+    }
+
+    @Override
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    boolean isShutdown() {
+        return workers.isShutdown();
+    }
+
+    /**
+     * The delivery side of one subscription on the pool.
+     */
+    abstract static class Mailbox implements Runnable {
+        private final Dispatcher dispatcher;
+        private final Channel<Message> ch;
+        // Set while the mailbox is queued on the pool or being drained.
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean active = true;
+
+        Mailbox(Dispatcher dispatcher, Channel<Message> ch) {
+            this.dispatcher = dispatcher;
+            this.ch = ch;
+        }
+
+        /**
+         * Delivers one message. Runs on a worker thread.
+         */
+        abstract void deliver(Message msg);
+
+        /**
+         * Queues the mailbox on the pool unless it is already queued or
+         * running. Called by the reader after adding to the channel.
+         */
+        void schedule() {
+            if (active && ch.getCount() > 0 && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.workers.execute(this);
+                } catch (RuntimeException e) {
+                    // The pool has been shut down.
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Stops delivery. A turn already running finishes its current
+         * message.
+         */
+        void cancel() {
+            active = false;
+        }
+
+        boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < BATCH && active; i++) {
+                    Message msg = ch.poll();
+                    if (msg == null) {
+                        break;
+                    }
+                    deliver(msg);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            // The reader may have added a message after the last poll but
+            // before scheduled was cleared, in which case it left the
+            // scheduling to us.
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single Selector thread that services socket reads, queued tasks and
+ * timers for any number of connections. Channel registration, the timer
+ * queue and all handler callbacks are confined to the loop thread; other
+ * threads hand work over through execute(). Nothing run on the loop may
+ * block, or every connection on it stalls: a handler whose socket won't
+ * take more bytes asks for onWritable() instead of waiting.
+ */
+class EventLoop implements Runnable {
+    final Logger logger = LoggerFactory.getLogger(EventLoop.class);
+
+    /**
+     * Callback for a channel registered with the loop.
+     */
+    interface Handler {
+        /**
+         * Called on the loop thread when the channel has data to read.
+         */
+        void onReadable();
+
+        /**
+         * Called once on the loop thread after requestWritable(), when the
+         * channel can take more bytes.
+         */
+        void onWritable();
+
+        /**
+         * Called on the loop thread if the channel could not be registered.
+         */
+        void onError(IOException err);
+    }
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    // Marks the end of the tasks a pass runs. A task queued while they run,
+    // even by one of them, waits for the next pass, so that a task that
+    // queues itself again can't keep the loop from its sockets and timers.
+    private final Runnable endOfPass = new Runnable() {
+        public void run() {}
+    };
+    private final PriorityQueue<Timer> timers = new PriorityQueue<Timer>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+    private volatile boolean shutdown = false;
+    private final Thread thread;
+
+    EventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new NATSThread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Queues a task to run on the loop thread.
+     *
+     * @param task the task to run
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop() && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Registers a channel for reads. The channel must already be in non-blocking mode. The
+     * registration completes asynchronously on the loop thread.
+     *
+     * @param channel the channel to watch
+     * @param handler the callback to invoke when the channel is readable
+     * @return a handle that can be used to stop watching the channel
+     */
+    Registration register(final SelectableChannel channel, final Handler handler) {
+        final Registration reg = new Registration(handler);
+        execute(new Runnable() {
+            public void run() {
+                if (reg.cancelled) {
+                    return;
+                }
+                try {
+                    reg.key = channel.register(selector, SelectionKey.OP_READ, reg);
+                } catch (ClosedChannelException e) {
+                    handler.onError(e);
+                }
+            }
+        });
+        return reg;
+    }
+
+    /**
+     * Asks for one call of the registration's {@code onWritable()} once its channel can take more
+     * bytes. May be called from any thread.
+     *
+     * @param reg the registration of the channel to watch
+     */
+    void requestWritable(final Registration reg) {
+        if (inLoop()) {
+            addWriteInterest(reg);
+            return;
+        }
+        execute(new Runnable() {
+            public void run() {
+                addWriteInterest(reg);
+            }
+        });
+    }
+
+    private void addWriteInterest(Registration reg) {
+        SelectionKey key = reg.key;
+        if (key != null && key.isValid() && !reg.cancelled) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Schedules a task to run on the loop thread after a delay, and then repeatedly with the
+     * given period if it is positive.
+     *
+     * @param task the task to run
+     * @param delay the initial delay
+     * @param period the period between runs, or 0 to run once
+     * @param unit the time unit of the delay and period
+     * @return a handle that can be used to cancel the timer
+     */
+    Timer schedule(Runnable task, long delay, long period, TimeUnit unit) {
+        final Timer timer = new Timer(task, System.nanoTime() + unit.toNanos(delay),
+                unit.toNanos(period));
+        execute(new Runnable() {
+            public void run() {
+                if (!timer.cancelled) {
+                    timers.add(timer);
+                }
+            }
+        });
+        return timer;
+    }
+
+    void shutdown() {
+        shutdown = true;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (!shutdown) {
+            try {
+                long waitMillis = runTimers();
+                if (!tasks.isEmpty()) {
+                    selector.selectNow();
+                } else {
+                    selector.select(waitMillis);
+                }
+                wakeupPending.set(false);
+                processSelectedKeys();
+                runTasks();
+            } catch (IOException e) {
+                logger.error("I/O exception in event loop", e);
+            } catch (Throwable t) {
+                logger.error("Unexpected exception in event loop", t);
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            key.cancel();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            Registration reg = (Registration) key.attachment();
+            if (!key.isValid() || reg.cancelled) {
+                continue;
+            }
+            try {
+                int ready = key.readyOps();
+                if ((ready & SelectionKey.OP_WRITE) != 0) {
+                    // Write interest is one-shot; the handler asks again if
+                    // the socket still can't take everything.
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    reg.handler.onWritable();
+                }
+                if ((ready & SelectionKey.OP_READ) != 0 && key.isValid() && !reg.cancelled) {
+                    reg.handler.onReadable();
+                }
+            } catch (RuntimeException e) {
+                logger.error("Exception in event loop handler", e);
+            }
+        }
+    }
+
+    private void runTasks() {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        tasks.add(endOfPass);
+        Runnable task;
+        while ((task = tasks.poll()) != endOfPass) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Exception in event loop task", e);
+            }
+        }
+    }
+
+    // Runs any timers that are due and returns the number of milliseconds until
+    // the next one, or 0 if there are none.
+    private long runTimers() {
+        long now = System.nanoTime();
+        Timer timer;
+        while ((timer = timers.peek()) != null) {
+            if (timer.cancelled) {
+                timers.poll();
+                continue;
+            }
+            if (timer.deadline - now > 0) {
+                return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(timer.deadline - now + 999999L));
+            }
+            timers.poll();
+            try {
+                timer.task.run();
+            } catch (RuntimeException e) {
+                logger.error("Exception in event loop timer", e);
+            }
+            if (timer.period > 0 && !timer.cancelled) {
+                timer.deadline += timer.period;
+                timers.add(timer);
+            }
+            now = System.nanoTime();
+        }
+        return 0L;
+    }
+
+    /**
+     * A channel's registration with the loop.
+     */
+    static final class Registration {
+        final Handler handler;
+        volatile SelectionKey key = null;
+        volatile boolean cancelled = false;
+
+        Registration(Handler handler) {
+            this.handler = handler;
+        }
+
+        void cancel() {
+            cancelled = true;
+            SelectionKey key = this.key;
+            if (key != null) {
+                key.cancel();
+            }
+        }
+    }
+
+    /**
+     * A one-shot or periodic task on the loop's timer queue.
+     */
+    static final class Timer implements Comparable<Timer> {
+        final Runnable task;
+        final long period;
+        long deadline;
+        volatile boolean cancelled = false;
+
+        Timer(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            long diff = deadline - other.deadline;
+            return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+        }
+    }
+}
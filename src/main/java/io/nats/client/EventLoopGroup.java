@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed pool of event loops shared by the connections created from one
+ * ConnectionFactory. Connections are assigned to loops round-robin.
+ */
+class EventLoopGroup extends SharedPool {
+    private final EventLoop[] loops;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    EventLoopGroup(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Event loop threads must be greater than 0");
+        }
+        loops = new EventLoop[threads];
+        try {
+            for (int i = 0; i < threads; i++) {
+                loops[i] = new EventLoop("eventloop");
+            }
+        } catch (IOException e) {
+            shutdown();
+            throw new IllegalStateException("Couldn't open event loop selector", e);
+        }
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+    }
+
+    EventLoop next() {
+        return loops[(next.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+    }
+
+    int size() {
+        return loops.length;
+    }
+
+    @Override
+    void shutdown() {
+        shutdown = true;
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.shutdown();
+            }
+        }
+    }
+
+    boolean isShutdown() {
+        return shutdown;
+    }
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@code LatencyHistogram} counts latencies, in nanoseconds, in log-linear buckets: each power
+ * of two is split into 32 equal buckets, so any reported value is within about 3% of the
+ * latencies it stands for, from a nanosecond up to about half an hour. Recording a latency takes
+ * no lock and allocates nothing.
+ *
+ * <p>The histograms returned by {@link Statistics#snapshot()} no longer change. Those of the
+ * live {@code Statistics} returned by {@link AbstractConnection#getStats()} go on counting, so
+ * two calls on them may disagree.
+ *
+ * @see Statistics#getRequestLatency()
+ * @see Statistics#getFlushLatency()
+ * @see Statistics#getDeliveryLatency()
+ */
+public final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values from 2^(MAX_EXPONENT + 1) ns on are counted as the largest.
+    static final int MAX_EXPONENT = 40;
+    static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram() {}
+
+    /**
+     * Counts one latency.
+     */
+    void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+        counts.incrementAndGet(bucketOf(value));
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Lost a race with another recorder; try again.
+        }
+    }
+
+    /**
+     * Returns a copy of the current counts.
+     */
+    LatencyHistogram snapshot() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                copy.counts.set(i, count);
+            }
+        }
+        copy.max.set(max.get());
+        return copy;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        max.set(0L);
+    }
+
+    // Values below SUB_BUCKETS have a bucket each; past that, the top
+    // SUB_BUCKET_BITS + 1 bits of a value pick its bucket within its power
+    // of two.
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // The largest value that falls in the given bucket.
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket - shift * SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @return the number of latencies recorded
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @return the largest latency recorded, in nanoseconds, or 0 if none were
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latency that the given percentage of the recorded latencies are at or below.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the latency at {@code percentile}, in nanoseconds, or 0 if none were recorded
+     * @throws IllegalArgumentException if {@code percentile} is not between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long total = getCount();
+        if (total == 0) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return the median latency, in nanoseconds
+     */
+    public long getP50() {
+        return getValueAtPercentile(50.0);
+    }
+
+    /**
+     * @return the 99th percentile latency, in nanoseconds
+     */
+    public long getP99() {
+        return getValueAtPercentile(99.0);
+    }
+
+    /**
+     * @return the 99.9th percentile latency, in nanoseconds
+     */
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{count=%d, p50=%d, p99=%d, p999=%d, max=%d}", getCount(), getP50(),
+                getP99(), getP999(), getMax());
+    }
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the JMX views of connections and subscriptions with the
+ * platform MBean server, for ConnectionFactory.setJmxEnabled(). The views
+ * only read the counters the client keeps anyway, so they cost nothing
+ * until a JMX client polls them.
+ */
+final class MXBeans {
+    static final String DOMAIN = "io.nats.client";
+
+    private static final Logger logger = LoggerFactory.getLogger(MXBeans.class);
+
+    // Numbers connections in their object names, as nothing else about a
+    // connection is unique.
+    private static final AtomicLong connectionIds = new AtomicLong();
+
+    private MXBeans() {}
+
+    /**
+     * Registers a view of the connection, returning its name, or null if
+     * it couldn't be registered.
+     */
+    static ObjectName register(ConnectionImpl nc) {
+        StringBuilder name = new StringBuilder(DOMAIN).append(":type=Connection,id=")
+                .append(connectionIds.incrementAndGet());
+        String connName = nc.getOptions().getConnectionName();
+        if (connName != null) {
+            name.append(",name=").append(ObjectName.quote(connName));
+        }
+        return register(new ConnectionView(nc), name.toString());
+    }
+
+    /**
+     * Registers a view of the subscription under its connection's name,
+     * returning its own name, or null if it couldn't be registered.
+     */
+    static ObjectName register(ObjectName connName, SubscriptionImpl sub) {
+        String name = String.format("%s:type=Subscription,connection=%s,sid=%d,subject=%s", DOMAIN,
+                connName.getKeyProperty("id"), sub.getSid(), ObjectName.quote(sub.getSubject()));
+        return register(new SubscriptionView(sub), name);
+    }
+
+    private static ObjectName register(Object view, String name) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(view, objectName);
+            return objectName;
+        } catch (JMException e) {
+            logger.warn("Unable to register MBean {}", name, e);
+            return null;
+        }
+    }
+
+    static void unregister(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            logger.debug("Unable to unregister MBean {}", name, e);
+        }
+    }
+
+    static final class ConnectionView implements ConnectionMXBean {
+        private final ConnectionImpl nc;
+
+        ConnectionView(ConnectionImpl nc) {
+            this.nc = nc;
+        }
+
+        @Override
+        public String getName() {
+            return nc.getOptions().getConnectionName();
+        }
+
+        @Override
+        public String getConnectedUrl() {
+            return nc.getConnectedUrl();
+        }
+
+        @Override
+        public String getState() {
+            return nc.getState().toString();
+        }
+
+        @Override
+        public long getInMsgs() {
+            return nc.stats.getInMsgs();
+        }
+
+        @Override
+        public long getInBytes() {
+            return nc.stats.getInBytes();
+        }
+
+        @Override
+        public long getOutMsgs() {
+            return nc.stats.getOutMsgs();
+        }
+
+        @Override
+        public long getOutBytes() {
+            return nc.stats.getOutBytes();
+        }
+
+        @Override
+        public long getReconnects() {
+            return nc.stats.getReconnects();
+        }
+
+        @Override
+        public long getFlushes() {
+            return nc.stats.getFlushes();
+        }
+
+        @Override
+        public int getSubscriptionCount() {
+            return nc.subs.size();
+        }
+
+        @Override
+        public void resetStats() {
+            nc.resetStats();
+        }
+    }
+
+    static final class SubscriptionView implements SubscriptionMXBean {
+        private final SubscriptionImpl sub;
+
+        SubscriptionView(SubscriptionImpl sub) {
+            this.sub = sub;
+        }
+
+        @Override
+        public String getSubject() {
+            return sub.getSubject();
+        }
+
+        @Override
+        public String getQueue() {
+            return sub.getQueue();
+        }
+
+        @Override
+        public long getSid() {
+            return sub.getSid();
+        }
+
+        @Override
+        public long getMsgs() {
+            return sub.msgs.get();
+        }
+
+        @Override
+        public long getBytes() {
+            return sub.bytes.get();
+        }
+
+        @Override
+        public long getDelivered() {
+            return sub.delivered.get();
+        }
+
+        @Override
+        public int getPendingMsgs() {
+            return sub.pMsgs.get();
+        }
+
+        @Override
+        public long getPendingBytes() {
+            return sub.pBytes.get();
+        }
+
+        @Override
+        public int getPendingMsgsMax() {
+            return sub.pMsgsMax;
+        }
+
+        @Override
+        public long getPendingBytesMax() {
+            return sub.pBytesMax;
+        }
+
+        @Override
+        public int getPendingMsgsLimit() {
+            return sub.getMaxPendingMsgs();
+        }
+
+        @Override
+        public long getPendingBytesLimit() {
+            return sub.getMaxPendingBytes();
+        }
+
+        @Override
+        public int getDropped() {
+            return sub.getDropped();
+        }
+
+        @Override
+        public boolean isSlowConsumer() {
+            return sub.isSlowConsumer();
+        }
+    }
+}
@@ -9,8 +9,10 @@
 
 package io.nats.client;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import io.nats.client.BufferPool.PooledBuffer;
 import io.nats.client.Parser.MsgArg;
 
 /**
@@ -25,7 +27,17 @@ public class Message {
     private String replyToString;
     // private ByteBuffer data;
     private byte[] data;
+    // Zero-copy payload: a range of a pooled read buffer.
+    private PooledBuffer pooled;
+    private int pooledOffset;
+    private int pooledLength;
+    private boolean released;
+    // Set while a message belongs to a subscription's message pool; cleared
+    // by retain().
+    private boolean recyclable;
     protected SubscriptionImpl sub;
+    // When the reader handed the message to an asynchronous subscription.
+    long receivedNanos;
 
     /**
      * 
@@ -52,14 +64,24 @@ public class Message {
     // }
 
     protected Message(MsgArg ma, SubscriptionImpl sub, byte[] buf, int offset, int length) {
-        this.setSubject(ma.subject.array(), ma.subject.limit());
-        if (ma.reply.limit() > 0) {
-            this.setReplyTo(ma.reply.array(), ma.reply.limit());
-        }
-        this.sub = sub;
+        fill(ma, sub, buf, offset, length);
+    }
+
+    // Zero-copy variant: the payload stays in the pooled read buffer, which
+    // this message holds a reference to until release() is called.
+    protected Message(MsgArg ma, SubscriptionImpl sub, PooledBuffer buf, int offset, int length) {
+        fill(ma, sub, buf, offset, length);
+    }
+
+    // Refills this message from a parsed MSG. Pooled messages are refilled
+    // over and over, so arrays and strings are kept when they still fit.
+    void fill(MsgArg ma, SubscriptionImpl sub, byte[] buf, int offset, int length) {
+        fillHeader(ma, sub);
         // make a deep copy of the bytes for this message.
         if (ma.size > 0) {
-            data = new byte[ma.size];
+            if (data == null || data.length != ma.size) {
+                data = new byte[ma.size];
+            }
             try {
                 System.arraycopy(buf, offset, data, 0, length);
             } catch (ArrayIndexOutOfBoundsException e) {
@@ -67,9 +89,56 @@ public class Message {
                         buf.length, offset, data.length, length, new String(buf, offset, length));
                 e.printStackTrace();
             }
+        } else {
+            data = null;
         }
     }
 
+    void fill(MsgArg ma, SubscriptionImpl sub, PooledBuffer buf, int offset, int length) {
+        fillHeader(ma, sub);
+        data = null;
+        if (ma.size > 0) {
+            buf.retain();
+            this.pooled = buf;
+            this.pooledOffset = offset;
+            this.pooledLength = length;
+            this.released = false;
+        }
+    }
+
+    private void fillHeader(MsgArg ma, SubscriptionImpl sub) {
+        release();
+        this.pooled = null;
+        this.released = false;
+        this.sub = sub;
+        if (ma.interned != null) {
+            this.subjectBytes = ma.interned.bytes;
+            this.subjectString = ma.interned.string;
+        } else if (!matches(subjectBytes, ma.buf, ma.subjectOffset, ma.subjectLength)) {
+            this.setSubject(ma.buf, ma.subjectOffset, ma.subjectLength);
+        }
+        if (ma.replyLength > 0) {
+            if (!matches(replyToBytes, ma.buf, ma.replyOffset, ma.replyLength)) {
+                this.setReplyTo(ma.buf, ma.replyOffset, ma.replyLength);
+            }
+        } else {
+            this.replyToString = null;
+            this.replyToBytes = null;
+        }
+    }
+
+    private static boolean matches(byte[] current, byte[] buf, int offset, int length) {
+        if (current == null || current.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (current[i] != buf[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     // protected Message(byte[] data, int length, byte[] subject, byte[] reply, SubscriptionImpl
     // sub)
     // {
@@ -89,16 +158,87 @@ public class Message {
     }
 
     /**
-     * Returns the message payload
+     * Returns the message payload. For a zero-copy message the payload is copied out of the read
+     * buffer the first time this is called.
      * 
      * @return the message payload
+     * @throws IllegalStateException if this is a zero-copy message that was released before its
+     *         payload was copied
      */
     public byte[] getData() {
+        if (data == null && (pooled != null || released)) {
+            if (released) {
+                throw new IllegalStateException("Message has been released");
+            }
+            data = new byte[pooledLength];
+            System.arraycopy(pooled.array(), pooledOffset, data, 0, pooledLength);
+        }
         return data;
     }
 
     /**
-     * Returns the message subject
+     * Returns a read-only view of the message payload. For a zero-copy message the view is backed
+     * by the connection's read buffer and is only valid until {@link #release()} is called.
+     * 
+     * @return the message payload, or {@code null} if the message has none
+     * @throws IllegalStateException if this is a zero-copy message that has been released
+     */
+    public ByteBuffer getDataBuffer() {
+        if (released) {
+            throw new IllegalStateException("Message has been released");
+        }
+        if (pooled != null) {
+            return ByteBuffer.wrap(pooled.array(), pooledOffset, pooledLength).slice()
+                    .asReadOnlyBuffer();
+        }
+        if (data == null) {
+            return null;
+        }
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    /**
+     * Hands a zero-copy message's read buffer back to the connection so that it can be reused.
+     * The buffer returned by {@link #getDataBuffer()} must not be used afterwards. Calling this
+     * more than once, or on a message that isn't zero-copy, has no effect.
+     */
+    public void release() {
+        PooledBuffer buf = pooled;
+        if (buf != null) {
+            pooled = null;
+            released = (data == null);
+            buf.release();
+        }
+    }
+
+    /**
+     * Keeps a message delivered to a {@link MessageHandler} from being recycled once the handler
+     * returns. Only needed when the subscription pools its messages and the handler hangs on to
+     * the message, e.g. by passing it to another thread; the message is then the caller's to keep.
+     */
+    public void retain() {
+        recyclable = false;
+    }
+
+    boolean isRecyclable() {
+        return recyclable;
+    }
+
+    void setRecyclable(boolean recyclable) {
+        this.recyclable = recyclable;
+    }
+
+    int getDataLength() {
+        if (data != null) {
+            return data.length;
+        }
+        return (pooled != null || released) ? pooledLength : 0;
+    }
+
+    /**
+     * Returns the message subject. The subject is kept as raw bytes and only decoded the first
+     * time this is called; see {@link #subjectStartsWith(byte[])} and
+     * {@link #subjectEquals(byte[])} for routing without decoding it.
      * 
      * @return the message subject
      */
@@ -113,6 +253,61 @@ public class Message {
         return subjectBytes;
     }
 
+    /**
+     * Tests whether the message subject starts with the given bytes, without decoding the
+     * subject into a {@code String}. Routing code can encode its prefixes once, e.g.
+     * {@code "orders.".getBytes()}, and reuse them for every message.
+     * 
+     * @param prefix the encoded subject prefix
+     * @return {@code true} if the subject starts with {@code prefix}
+     */
+    public boolean subjectStartsWith(byte[] prefix) {
+        return startsWith(subjectBytes, prefix);
+    }
+
+    /**
+     * Tests whether the message subject equals the given bytes, without decoding the subject into
+     * a {@code String}.
+     * 
+     * @param subject the encoded subject
+     * @return {@code true} if the subject is exactly {@code subject}
+     */
+    public boolean subjectEquals(byte[] subject) {
+        return subject != null && matches(subjectBytes, subject, 0, subject.length);
+    }
+
+    /**
+     * Tests whether the message reply subject starts with the given bytes, without decoding it
+     * into a {@code String}.
+     * 
+     * @param prefix the encoded reply subject prefix
+     * @return {@code true} if the message has a reply subject that starts with {@code prefix}
+     */
+    public boolean replyToStartsWith(byte[] prefix) {
+        return startsWith(replyToBytes, prefix);
+    }
+
+    /**
+     * Indicates whether the message has a reply subject, without decoding it.
+     * 
+     * @return {@code true} if the message has a reply subject
+     */
+    public boolean hasReplyTo() {
+        return replyToBytes != null;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes == null || prefix == null || prefix.length > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Sets the subject of the message
      * 
@@ -128,11 +323,17 @@ public class Message {
     }
 
     void setSubject(byte[] subject, int length) {
-        this.subjectBytes = Arrays.copyOf(subject, length);
+        setSubject(subject, 0, length);
+    }
+
+    void setSubject(byte[] subject, int offset, int length) {
+        this.subjectString = null;
+        this.subjectBytes = Arrays.copyOfRange(subject, offset, offset + length);
     }
 
     /**
-     * Returns the reply subject
+     * Returns the reply subject. Like the subject, it is only decoded the first time this is
+     * called.
      * 
      * @return the reply subject
      */
@@ -168,10 +369,15 @@ public class Message {
     }
 
     void setReplyTo(byte[] replyTo, int length) {
+        setReplyTo(replyTo, 0, length);
+    }
+
+    void setReplyTo(byte[] replyTo, int offset, int length) {
+        this.replyToString = null;
         if (replyTo == null) {
             this.replyToBytes = null;
         } else {
-            this.replyToBytes = Arrays.copyOf(replyTo, length);
+            this.replyToBytes = Arrays.copyOfRange(replyTo, offset, offset + length);
         }
     }
 
@@ -192,6 +398,8 @@ public class Message {
      * @param length the number of bytes to write
      */
     public void setData(byte[] data, int offset, int length) {
+        release();
+        this.released = false;
         if (data == null) {
             this.data = null;
         } else {
@@ -7,6 +7,7 @@
  *******************************************************************************/
 package io.nats.client;
 
+import java.lang.reflect.Method;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
 
@@ -18,6 +19,10 @@ import java.util.concurrent.ThreadFactory;
  * @author Brian Goetz and Tim Peierls
  */
 class NATSThreadFactory implements ThreadFactory {
+	// Thread.ofVirtual(), looked up reflectively so that we still run on JDKs
+	// without virtual threads. Null if they aren't available.
+	private static final Method OF_VIRTUAL = lookupOfVirtual();
+
 	private final String poolName;
 	private CountDownLatch startSignal;
 	private CountDownLatch doneSignal;
@@ -45,4 +50,48 @@ class NATSThreadFactory implements ThreadFactory {
 		return newThread(r, null, null);
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Returns a factory for threads named after {@code poolName}, which starts virtual threads
+	 * if {@code virtual} is set and the JDK supports them, and platform threads otherwise.
+	 */
+	static ThreadFactory newThreadFactory(String poolName, boolean virtual) {
+		if (virtual) {
+			ThreadFactory factory = newVirtualThreadFactory(poolName);
+			if (factory != null) {
+				return factory;
+			}
+		}
+		return new NATSThreadFactory(poolName);
+	}
+
+	/**
+	 * Returns whether this JDK can start virtual threads.
+	 */
+	static boolean isVirtualThreadSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	// Equivalent to Thread.ofVirtual().name(poolName + "-", 1).factory().
+	private static ThreadFactory newVirtualThreadFactory(String poolName) {
+		if (OF_VIRTUAL == null) {
+			return null;
+		}
+		try {
+			Object builder = OF_VIRTUAL.invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class)
+					.invoke(builder, poolName + "-", 1L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static Method lookupOfVirtual() {
+		try {
+			return Thread.class.getMethod("ofVirtual");
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,500 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * A TCPConnection backed by a java.nio SocketChannel. Inbound reads land
+ * directly in the caller's array and outbound protocol is staged in a
+ * reusable direct ByteBuffer, so neither path goes through the extra
+ * copy of the java.net socket streams.
+ */
+class NIOTCPConnection extends TCPConnection {
+
+    SocketChannel channel = null;
+    private ChannelInputStream cis = null;
+    private ChannelOutputStream cos = null;
+    private boolean secure = false;
+
+    public NIOTCPConnection() {}
+
+    @Override
+    public void open(String host, int port, int timeoutMillis) throws IOException {
+        logger.trace("NIOTCPConnection.open({},{},{})", host, port, timeoutMillis);
+        mu.lock();
+        try {
+            this.addr = new InetSocketAddress(host, port);
+            channel = SocketChannel.open();
+            channel.configureBlocking(true);
+            channel.socket().connect(addr, timeout);
+            client = channel.socket();
+            secure = false;
+
+            open();
+        } catch (IOException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            throw e;
+        } finally {
+            mu.unlock();
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        mu.lock();
+        try {
+            client.setTcpNoDelay(false);
+            client.setReceiveBufferSize(ConnectionImpl.DEFAULT_BUF_SIZE);
+            client.setSendBufferSize(ConnectionImpl.DEFAULT_BUF_SIZE);
+
+            cis = new ChannelInputStream(channel);
+            cos = new ChannelOutputStream(channel, ConnectionImpl.DEFAULT_BUF_SIZE);
+        } finally {
+            mu.unlock();
+        }
+    }
+
+    @Override
+    public void teardown() {
+        super.teardown();
+        mu.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // ignore
+        } finally {
+            if (cos != null) {
+                cos.closeSelector();
+            }
+            channel = null;
+            cis = null;
+            cos = null;
+            mu.unlock();
+        }
+    }
+
+    @Override
+    public BufferedInputStream getBufferedInputStream(int size) {
+        if (secure) {
+            return super.getBufferedInputStream(size);
+        }
+        // BufferedInputStream hands reads of at least its own size straight to the
+        // underlying stream, so the read loop's buffer is filled from the channel directly.
+        if (bis == null) {
+            bis = new BufferedInputStream(cis, size);
+        }
+        return bis;
+    }
+
+    /**
+     * Returns the stream the connection writes protocol to. This is the channel stream, which
+     * does its own buffering, or the buffered TLS socket stream once TLS is engaged.
+     *
+     * @param size the buffer size to use if a buffered stream must be created
+     * @return the outbound stream
+     */
+    public OutputStream getOutputStream(int size) {
+        if (secure) {
+            return getBufferedOutputStream(size);
+        }
+        return cos;
+    }
+
+    @Override
+    public boolean isDataAvailable() throws IOException {
+        if (secure) {
+            return super.isDataAvailable();
+        }
+        return (bis != null && bis.available() > 0);
+    }
+
+    // TLS is layered over the channel's socket adaptor, after which I/O falls back to the
+    // SSLSocket streams.
+    @Override
+    protected void makeTLS(SSLContext context) throws IOException {
+        super.makeTLS(context);
+        secure = true;
+    }
+
+    /**
+     * Switches the channel to non-blocking mode so it can be registered with an event loop.
+     * Until {@link #attachToLoop} is called, writes still block the writing thread until the
+     * channel accepts them.
+     *
+     * @throws IOException if the channel's blocking mode can't be changed
+     */
+    void configureNonBlocking() throws IOException {
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Hands waiting for the socket over to the event loop the channel is registered with. What
+     * the socket won't take right away is kept in a backlog that the loop writes out from
+     * {@link #writeBacklog()}, so writes on the loop thread never wait. Other writers are held
+     * back while the backlog is large.
+     *
+     * @param loop the event loop
+     * @param reg the channel's registration with {@code loop}
+     */
+    void attachToLoop(EventLoop loop, EventLoop.Registration reg) {
+        ChannelOutputStream cos = this.cos;
+        if (cos != null) {
+            cos.attach(loop, reg);
+        }
+    }
+
+    /**
+     * Goes back to writers waiting for the socket themselves, starting with the backlog.
+     */
+    void detachFromLoop() {
+        ChannelOutputStream cos = this.cos;
+        if (cos != null) {
+            cos.detach();
+        }
+    }
+
+    /**
+     * @return whether there are bytes the socket hasn't taken yet
+     */
+    boolean isWriteBacklogged() {
+        ChannelOutputStream cos = this.cos;
+        return cos != null && cos.isBacklogged();
+    }
+
+    /**
+     * Writes as much of the backlog as the socket takes, asking the loop to call again if it
+     * doesn't take it all. Called on the loop thread when the channel is writable.
+     *
+     * @return {@code true} if the backlog is empty
+     * @throws IOException if the channel can't be written to
+     */
+    boolean writeBacklog() throws IOException {
+        ChannelOutputStream cos = this.cos;
+        return cos == null || cos.writeBacklog();
+    }
+
+    boolean isSecure() {
+        return secure;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Reads from the channel into the caller's array through a cached heap
+     * wrapper, so steady-state reads don't allocate.
+     */
+    static class ChannelInputStream extends InputStream {
+        private final SocketChannel channel;
+        private byte[] wrapped = null;
+        private ByteBuffer view = null;
+
+        ChannelInputStream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return (n <= 0) ? -1 : (b[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (b != wrapped) {
+                view = ByteBuffer.wrap(b);
+                wrapped = b;
+            }
+            view.limit(off + len).position(off);
+            return channel.read(view);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Stages outbound bytes in a direct buffer and writes it to the channel
+     * on flush, or when a write would overflow it. Writes at least as large
+     * as the buffer skip it entirely. When the channel is non-blocking the
+     * writer waits on a private selector for the socket to drain.
+     *
+     * <p>While attached to an event loop nobody waits on the socket with the
+     * stream locked: what it won't take goes to a backlog, which the loop
+     * writes out when the channel turns writable. Writers other than the
+     * loop wait, unlocked, for the backlog to shrink below a buffer's worth.
+     *
+     * <p>Gathering writes send the staged bytes and a message's header, body
+     * and CRLF with a single write(ByteBuffer[]), straight from the caller's
+     * arrays.
+     */
+    static class ChannelOutputStream extends OutputStream
+            implements CoalescingOutputStream.GatheringOutput {
+        static final long WRITE_WAIT_MILLIS = 100;
+        private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+        private final SocketChannel channel;
+        private final ByteBuffer buf;
+        private final ByteBuffer[] gather = new ByteBuffer[4];
+        private byte[] wrapped = null;
+        private ByteBuffer view = null;
+        private Selector writeSelector = null;
+        // Set while attached to an event loop.
+        private EventLoop loop = null;
+        private EventLoop.Registration reg = null;
+        // Bytes the socket hasn't taken yet, in write mode.
+        private ByteBuffer backlog = null;
+
+        ChannelOutputStream(SocketChannel channel, int size) {
+            this.channel = channel;
+            this.buf = ByteBuffer.allocateDirect(size);
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (!buf.hasRemaining()) {
+                flushBuffer();
+            }
+            buf.put((byte) b);
+            throttle();
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (len >= buf.capacity()) {
+                flushBuffer();
+                writeFully(wrap(b, off, len));
+            } else {
+                if (len > buf.remaining()) {
+                    flushBuffer();
+                }
+                buf.put(b, off, len);
+            }
+            throttle();
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            flushBuffer();
+            if (loop == null && isBacklogged()) {
+                writeFully(EMPTY);
+            }
+            throttle();
+        }
+
+        @Override
+        public synchronized void write(byte[] head, int headOff, int headLen, byte[] body,
+                int bodyLen, byte[] tail, int tailLen) throws IOException {
+            ByteBuffer[] srcs = gather;
+            buf.flip();
+            srcs[0] = buf;
+            srcs[1] = (headLen > 0) ? ByteBuffer.wrap(head, headOff, headLen) : EMPTY;
+            srcs[2] = (bodyLen > 0) ? ByteBuffer.wrap(body, 0, bodyLen) : EMPTY;
+            srcs[3] = (tailLen > 0) ? ByteBuffer.wrap(tail, 0, tailLen) : EMPTY;
+            try {
+                long remaining = buf.remaining() + headLen + bodyLen + tailLen;
+                while (remaining > 0) {
+                    long n = isBacklogged() ? 0 : channel.write(srcs);
+                    if (n == 0 && (loop != null || isBacklogged())) {
+                        // Whatever is left queues up behind the backlog, in order.
+                        for (ByteBuffer src : srcs) {
+                            writeFully(src);
+                        }
+                        break;
+                    }
+                    if (n == 0 && !channel.isBlocking()) {
+                        awaitWritable();
+                    }
+                    remaining -= n;
+                }
+            } finally {
+                buf.clear();
+                srcs[1] = srcs[2] = srcs[3] = null;
+            }
+            throttle();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeSelector();
+            channel.close();
+        }
+
+        synchronized void closeSelector() {
+            if (writeSelector != null) {
+                try {
+                    writeSelector.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                writeSelector = null;
+            }
+        }
+
+        synchronized void attach(EventLoop loop, EventLoop.Registration reg) {
+            this.loop = loop;
+            this.reg = reg;
+        }
+
+        synchronized void detach() {
+            this.loop = null;
+            this.reg = null;
+            // Waiting writers now write the backlog out themselves.
+            notifyAll();
+        }
+
+        synchronized boolean isBacklogged() {
+            return backlog != null && backlog.position() > 0;
+        }
+
+        synchronized boolean writeBacklog() throws IOException {
+            if (!isBacklogged()) {
+                return true;
+            }
+            backlog.flip();
+            try {
+                while (backlog.hasRemaining() && channel.write(backlog) > 0) {
+                    // keep going while the socket takes it
+                }
+            } finally {
+                backlog.compact();
+                notifyAll();
+            }
+            if (backlog.position() > 0) {
+                if (loop != null) {
+                    loop.requestWritable(reg);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        private ByteBuffer wrap(byte[] b, int off, int len) {
+            if (b != wrapped) {
+                view = ByteBuffer.wrap(b);
+                wrapped = b;
+            }
+            view.limit(off + len).position(off);
+            return view;
+        }
+
+        private void flushBuffer() throws IOException {
+            if (buf.position() == 0) {
+                return;
+            }
+            buf.flip();
+            try {
+                writeFully(buf);
+            } finally {
+                buf.clear();
+            }
+        }
+
+        void writeFully(ByteBuffer src) throws IOException {
+            if (loop != null) {
+                // Take what the socket takes now and leave the rest to the loop.
+                if (!isBacklogged()) {
+                    while (src.hasRemaining() && channel.write(src) > 0) {
+                        // keep going while the socket takes it
+                    }
+                    if (src.hasRemaining()) {
+                        addToBacklog(src);
+                        loop.requestWritable(reg);
+                    }
+                } else {
+                    addToBacklog(src);
+                }
+                return;
+            }
+            if (isBacklogged()) {
+                backlog.flip();
+                try {
+                    writeBlocking(backlog);
+                } finally {
+                    backlog.compact();
+                }
+            }
+            writeBlocking(src);
+        }
+
+        private void writeBlocking(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                if (channel.write(src) == 0 && !channel.isBlocking()) {
+                    awaitWritable();
+                }
+            }
+        }
+
+        private void addToBacklog(ByteBuffer src) {
+            if (!src.hasRemaining()) {
+                return;
+            }
+            if (backlog == null) {
+                backlog = ByteBuffer.allocate(Math.max(buf.capacity(), src.remaining()));
+            } else if (backlog.remaining() < src.remaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(
+                        Math.max(2 * backlog.capacity(), backlog.position() + src.remaining()));
+                backlog.flip();
+                bigger.put(backlog);
+                backlog = bigger;
+            }
+            backlog.put(src);
+        }
+
+        // Holds back writers other than the loop while the socket is more
+        // than a buffer's worth behind, so that a stalled socket pushes back
+        // on them rather than growing the backlog without bound. The stream
+        // must be locked, and in a consistent state, since waiting unlocks it.
+        private void throttle() throws IOException {
+            while (loop != null && !loop.inLoop() && backlog != null
+                    && backlog.position() > buf.capacity()) {
+                if (!channel.isOpen()) {
+                    throw new ClosedChannelException();
+                }
+                try {
+                    wait(WRITE_WAIT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for the socket");
+                }
+            }
+        }
+
+        private void awaitWritable() throws IOException {
+            if (writeSelector == null) {
+                writeSelector = Selector.open();
+                channel.register(writeSelector, SelectionKey.OP_WRITE);
+            }
+            writeSelector.select(WRITE_WAIT_MILLIS);
+            writeSelector.selectedKeys().clear();
+        }
+    }
+}
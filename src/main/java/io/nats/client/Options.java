@@ -35,6 +35,19 @@ class Options {
     private ExceptionHandler exceptionHandler;
     private SSLContext sslContext;
     private boolean tlsDebug;
+    private boolean useNio;
+    private EventLoopGroup eventLoopGroup;
+    private Dispatcher dispatcher;
+    private boolean useVirtualThreads;
+    private boolean useRequestMux;
+    private boolean jmxEnabled;
+    private int flushBatchSize;
+    private int gatherWriteThreshold;
+    private long maxFlushDelayMicros;
+    private boolean zeroCopy;
+    private int messagePoolSize;
+    private int subjectCacheSize;
+    private WaitStrategy subscriptionWaitStrategy = WaitStrategy.PARK;
     private int maxPendingMsgs;
     private long maxPendingBytes;
     protected DisconnectedCallback disconnectedCB;
@@ -213,6 +226,110 @@ class Options {
         this.tlsDebug = debug;
     }
 
+    public boolean isUseNio() {
+        return useNio;
+    }
+
+    public void setUseNio(boolean useNio) {
+        this.useNio = useNio;
+    }
+
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+
+    public void setFlushBatchSize(int flushBatchSize) {
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    public int getGatherWriteThreshold() {
+        return gatherWriteThreshold;
+    }
+
+    public void setGatherWriteThreshold(int gatherWriteThreshold) {
+        this.gatherWriteThreshold = gatherWriteThreshold;
+    }
+
+    public long getMaxFlushDelayMicros() {
+        return maxFlushDelayMicros;
+    }
+
+    public void setMaxFlushDelayMicros(long maxFlushDelayMicros) {
+        this.maxFlushDelayMicros = maxFlushDelayMicros;
+    }
+
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    public void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+
+    public int getMessagePoolSize() {
+        return messagePoolSize;
+    }
+
+    public void setMessagePoolSize(int messagePoolSize) {
+        this.messagePoolSize = messagePoolSize;
+    }
+
+    public int getSubjectCacheSize() {
+        return subjectCacheSize;
+    }
+
+    public void setSubjectCacheSize(int subjectCacheSize) {
+        this.subjectCacheSize = subjectCacheSize;
+    }
+
+    public WaitStrategy getSubscriptionWaitStrategy() {
+        return subscriptionWaitStrategy;
+    }
+
+    public void setSubscriptionWaitStrategy(WaitStrategy subscriptionWaitStrategy) {
+        this.subscriptionWaitStrategy = subscriptionWaitStrategy;
+    }
+
+    EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    void setEventLoopGroup(EventLoopGroup group) {
+        this.eventLoopGroup = group;
+    }
+
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    public boolean isUseRequestMux() {
+        return useRequestMux;
+    }
+
+    public void setUseRequestMux(boolean useRequestMux) {
+        this.useRequestMux = useRequestMux;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    Dispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    void setDispatcher(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
     public boolean isReconnectAllowed() {
         return reconnectAllowed;
     }
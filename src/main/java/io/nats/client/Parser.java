@@ -10,34 +10,45 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.text.ParseException;
 
 final class Parser {
     final static Logger logger = LoggerFactory.getLogger(Parser.class);
 
     final static int MAX_CONTROL_LINE_SIZE = 1024;
-    final static int MAX_MSG_ARGS = 4;
 
     private ConnectionImpl nc;
 
     // List<byte[]> args = new ArrayList<byte[]>();
 
+    // The arguments of a MSG control line. The subject and reply aren't
+    // copied; they are ranges of buf, which is the read buffer the line was
+    // parsed from, or the parser's arg buffer when the line or its payload
+    // was split across reads.
     protected class MsgArg {
-        // byte[] subjectBytes = new byte[MAX_CONTROL_LINE_SIZE];
-        ByteBuffer subject = ByteBuffer.allocate(MAX_CONTROL_LINE_SIZE);
-        // int subjectLength = 0;
-        // byte[] replyBytes = new byte [MAX_CONTROL_LINE_SIZE];
-        ByteBuffer reply = ByteBuffer.allocate(MAX_CONTROL_LINE_SIZE);
-        // int replyLength = 0;
+        byte[] buf;
+        int subjectOffset;
+        int subjectLength;
+        int replyOffset;
+        int replyLength;
         long sid;
         int size;
+        // The subject's shared copy, when the connection has a subject cache.
+        SubjectCache.Entry interned;
+
+        String subjectString() {
+            return (buf != null) ? new String(buf, subjectOffset, subjectLength) : null;
+        }
+
+        String replyString() {
+            return (replyLength > 0) ? new String(buf, replyOffset, replyLength) : null;
+        }
 
         public String toString() {
 
             return String.format("{subject=%s(len=%d), reply=%s(len=%d), sid=%d, size=%d}",
-                    new String(subject.array(), 0, subject.limit()), subject.limit(),
-                    reply == null ? "null" : new String(reply.array(), 0, reply.limit()),
-                    reply.limit(), sid, size);
+                    subjectString(), subjectLength, replyString(), replyLength, sid, size);
         }
     }
 
@@ -50,20 +61,24 @@ final class Parser {
         ByteBuffer argBuf = null;
         byte[] msgBufStore = new byte[ConnectionImpl.DEFAULT_BUF_SIZE];
         ByteBuffer msgBuf = null;
-        // byte[] scratch = new byte[MAX_CONTROL_LINE_SIZE];
-        ByteBuffer[] args = new ByteBuffer[MAX_MSG_ARGS];
-
-        ParseState() {
-            for (int i = 0; i < MAX_MSG_ARGS; i++) {
-                args[i] = ByteBuffer.allocate(MAX_CONTROL_LINE_SIZE);
-            }
-        }
     }
 
     ParseState ps = new ParseState();
 
     final static int ascii_0 = 48;
     final static int ascii_9 = 57;
+    // The largest number another digit can be appended to without the
+    // result overflowing a long.
+    private static final long MAX_BEFORE_DIGIT = (Long.MAX_VALUE - 9) / 10;
+
+    // SWAR constants: every byte set to '\n', to 0x01 and to 0x80.
+    private static final long LF_BYTES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    // A little-endian view of the buffer being parsed, for reading it a
+    // long at a time. Rewrapped only when the read buffer changes.
+    private ByteBuffer longView;
 
     static enum NatsOp {
         OP_START, OP_PLUS, OP_PLUS_O, OP_PLUS_OK, OP_MINUS, OP_MINUS_E, OP_MINUS_ER, OP_MINUS_ERR, OP_MINUS_ERR_SPC, MINUS_ERR_ARG, OP_M, OP_MS, OP_MSG, OP_MSG_SPC, MSG_ARG, MSG_PAYLOAD, MSG_END, OP_P, OP_PI, OP_PIN, OP_PING, OP_PO, OP_PON, OP_PONG
@@ -113,6 +128,13 @@ final class Parser {
 
             switch (ps.state) {
                 case OP_START:
+                    if (b == 'M' && ps.argBuf == null) {
+                        int last = parseMsgLine(buf, i, len);
+                        if (last >= 0) {
+                            i = last;
+                            break;
+                        }
+                    }
                     switch (b) {
                         case 'M':
                         case 'm':
@@ -197,14 +219,7 @@ final class Parser {
                             // arg.limit());
                             // processMsgArgs(arg.array(), arg.arrayOffset(), arg.limit());
 
-                            ps.drop = 0;
-                            ps.as = i + 1;
-                            ps.state = NatsOp.MSG_PAYLOAD;
-
-                            // jump ahead with the index. If this overruns
-                            // what is left we fall out and process split
-                            // buffer.
-                            i = ps.as + ps.ma.size - 1;
+                            i = startPayload(buf, i, len);
                             break;
                         default:
                             // We have a leftover argBuf we'll continuing filling
@@ -215,63 +230,17 @@ final class Parser {
                     }
                     break;
                 case MSG_PAYLOAD:
-                    boolean done = false;
-                    // System.err.printf("MSG_PAYLOAD: ps.ma.size = %d\n", ps.ma.size);
-                    // System.err.printf("ps.msgBuf.position=%d, i=%d, ps.as=%d, ps.ma.size=%d\n",
-                    // ps.msgBuf.position(), i, ps.as, ps.ma.size);
-                    if (ps.msgBuf != null) {
-                        // System.err.printf("ps.msgBuf.position=%d, i=%d, ps.as=%d,
-                        // ps.ma.size=%d\n",
-                        // ps.msgBuf.position(), i, ps.as, ps.ma.size);
-                        // Already have bytes in the buffer
-                        if (ps.msgBuf.position() >= ps.ma.size) {
-                            ps.msgBuf.flip();
-                            nc.processMsg(ps.msgBuf.array(), 0, ps.msgBuf.limit());
-                            done = true;
-                        } else {
-                            // copy as much as we can to the buffer and skip ahead.
-                            int toCopy = ps.ma.size - ps.msgBuf.limit();
-                            int avail = len - i;
-
-                            if (avail < toCopy) {
-                                toCopy = avail;
-                            }
-
-                            // System.err.printf("msgBuf=%s(remaining=%d), i=%d, len=%d,
-                            // ps.ma.size=%d, avail = %d, toCopy=%d,"
-                            // + " buf.length=%d\n",
-                            // ps.msgBuf, ps.msgBuf.remaining(), i, len, ps.ma.size, avail, toCopy,
-                            // buf.length);
-                            if (toCopy > 0) {
-                                // System.err.printf("msgBuf=%s(remaining=%d), i=%d, len=%d,
-                                // ps.ma.size=%d, avail = %d, toCopy=%d,"
-                                // + " buf.length=%d\n",
-                                // ps.msgBuf, ps.msgBuf.remaining(), i, len, ps.ma.size, avail,
-                                // toCopy, buf.length);
-                                ps.msgBuf.put(buf, i, toCopy);
-                                // Update our index
-                                i += toCopy - 1;
-                            } else {
-                                ps.msgBuf.put(b);
-                            }
-                        }
-                    } else if (i - ps.as >= ps.ma.size) {
-                        // System.err.printf("i=%d, ps.as=%d, ps.ma.size=%d\n", i, ps.as,
-                        // ps.ma.size);
-                        // If we are at or past the end of the payload, go ahead and process it, no
-                        // buffering needed.
-                        nc.processMsg(buf, ps.as, i - ps.as); // pass offset and length
-                        done = true;
-                    }
-
-                    if (done) {
-                        ps.argBuf = null;
-                        // ps.argBuf.clear();
-                        ps.msgBuf = null;
-                        // ps.msgBuf.clear();
-                        ps.state = NatsOp.MSG_END;
+                    // Only reached when the payload was split across reads.
+                    // Copy as much of the rest of it as this buffer holds and
+                    // skip ahead.
+                    int toCopy = Math.min(ps.ma.size - ps.msgBuf.position(), len - i);
+                    ps.msgBuf.put(buf, i, toCopy);
+                    i += toCopy - 1;
+                    if (ps.msgBuf.position() >= ps.ma.size) {
+                        ps.msgBuf.flip();
+                        nc.processMsg(ps.msgBuf.array(), 0, ps.msgBuf.limit());
+                        msgDone();
                     }
-
                     break;
                 case MSG_END:
                     switch (b) {
@@ -518,6 +487,80 @@ final class Parser {
         }
     }
 
+    // Fast path for a whole MSG control line at the start of an op. The line
+    // end is found a long at a time and the arguments are parsed in place,
+    // skipping the per-byte states. Returns the index of the last byte
+    // consumed, or -1 to leave the line to the state machine, e.g. when it
+    // is split across reads.
+    private int parseMsgLine(byte[] buf, int i, int len) throws ParseException {
+        if (i + 4 > len || buf[i + 1] != 'S' || buf[i + 2] != 'G'
+                || (buf[i + 3] != ' ' && buf[i + 3] != '\t')) {
+            return -1;
+        }
+        int start = i + 4;
+        int lf = indexOfNewline(buf, start, Math.min(len, start + MAX_CONTROL_LINE_SIZE));
+        if (lf < 0) {
+            return -1;
+        }
+        ps.as = start;
+        processMsgArgs(buf, start, lf - start);
+        return startPayload(buf, lf, len);
+    }
+
+    // Moves to the payload once the MSG line ending at index lf has been
+    // parsed. The payload length is known, so the whole span is handed over
+    // at once if it's all in this buffer. Otherwise the index jumps past the
+    // end, so that we fall out and process the split buffer.
+    private int startPayload(byte[] buf, int lf, int len) {
+        ps.drop = 0;
+        ps.as = lf + 1;
+        ps.state = NatsOp.MSG_PAYLOAD;
+        if (ps.as + ps.ma.size <= len) {
+            nc.processMsg(buf, ps.as, ps.ma.size);
+            msgDone();
+        }
+        return ps.as + ps.ma.size - 1;
+    }
+
+    /**
+     * Finds the first '\n' in {@code buf[from, to)}, eight bytes at a time.
+     *
+     * @param buf the buffer to search
+     * @param from the index to start at
+     * @param to the index to stop before
+     * @return the index of the first '\n', or -1 if there isn't one
+     */
+    int indexOfNewline(byte[] buf, int from, int to) {
+        int i = from;
+        if (to - from >= 8) {
+            if (longView == null || longView.array() != buf) {
+                longView = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            for (; i <= to - 8; i += 8) {
+                // Zero the newline bytes, then flag zero bytes. Only bytes
+                // above the first zero can be flagged falsely, so the lowest
+                // flag is exact.
+                long x = longView.getLong(i) ^ LF_BYTES;
+                long found = (x - LOW_BITS) & ~x & HIGH_BITS;
+                if (found != 0) {
+                    return i + (Long.numberOfTrailingZeros(found) >>> 3);
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (buf[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void msgDone() {
+        ps.argBuf = null;
+        ps.msgBuf = null;
+        ps.state = NatsOp.MSG_END;
+    }
+
     protected static String bufToString(ByteBuffer arg) {
         if (arg == null) {
             return null;
@@ -532,81 +575,85 @@ final class Parser {
         return str;
     }
 
+    // Parses "<subject> <sid> [reply] <size>" in a single pass. The subject
+    // and reply are recorded as offsets into arg, and the sid and size are
+    // accumulated while their digits are scanned. Since the third argument
+    // is only known to be the reply or the size once the line ends, it is
+    // both recorded and parsed.
     protected void processMsgArgs(byte[] arg, int offset, int length) throws ParseException {
-        // if (logger.isDebugEnabled()) {
-        // logger.trace("processMsgArgs (limit={}) content=[{}]\n", buffer.limit(),
-        // bufToString(buffer));
-        // }
-        // System.err.printf("offset=%d, length=%d\n", offset, length);
-        int argLen = 0;
+        int end = offset + length;
         int numArgs = 0;
-        int start = -1;
-        byte b;
-        int i;
-        for (i = offset; i < offset + length; i++) {
-            b = arg[i];
-            // System.err.println(String.format("Considering [%c]", (char)b));
-            switch (b) {
-                case ' ':
-                case '\t':
-                case '\r':
-                case '\n':
-                    if (start >= 0) {
-                        argLen = i - start;
-                        // System.err.printf("start = %d, len = %d, ps.args[%d]=%s\n", start,
-                        // argLen, numArgs, ps.args[numArgs]);
-                        if (argLen > ps.args[numArgs].remaining()) {
-                            ps.args[numArgs] = ByteBuffer.allocate(argLen);
-                        }
-                        ps.args[numArgs++].put(arg, start, argLen).flip();
-                        start = -1;
-                    }
+        int subjectStart = 0;
+        int subjectLen = 0;
+        int thirdStart = 0;
+        int thirdLen = 0;
+        long sid = -1;
+        long third = -1;
+        long fourth = -1;
+
+        int i = offset;
+        while (i < end) {
+            byte b = arg[i];
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                i++;
+                continue;
+            }
+            int start = i;
+            long n = 0;
+            boolean numeric = true;
+            for (; i < end; i++) {
+                b = arg[i];
+                if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                    break;
+                }
+                if (b < ascii_0 || b > ascii_9) {
+                    numeric = false;
+                } else if (n > MAX_BEFORE_DIGIT) {
+                    // Too many digits; rejected like any other bad number.
+                    numeric = false;
+                } else {
+                    n = (n * 10) + b - ascii_0;
+                }
+            }
+            long value = numeric ? n : -1;
+            switch (numArgs) {
+                case 0:
+                    subjectStart = start;
+                    subjectLen = i - start;
+                    break;
+                case 1:
+                    sid = value;
+                    break;
+                case 2:
+                    thirdStart = start;
+                    thirdLen = i - start;
+                    third = value;
+                    break;
+                case 3:
+                    fourth = value;
                     break;
                 default:
-                    if (start < 0) {
-                        start = i;
-                    }
                     break;
             }
+            numArgs++;
         }
-        if (start >= 0) {
-            argLen = i - start;
-            ps.args[numArgs++].put(arg, start, argLen).flip();
-        }
-
-        // for (i = 0; i<ps.args.length; i++) {
-        // if (ps.args[i] != null) {
-        // String s = new String(ps.args[i].array());
-        // System.err.printf("arg[%d]=[%s], argLen=%d\n", i, s, s.length());
-        // }
-        // }
 
-        // System.err.println("ps.args[0] = " + ps.args[0]);
-        // System.err.println("ps.args[1] = " + ps.args[1]);
-        // System.err.println("ps.args[2] = " + ps.args[2]);
-        // System.err.println("ps.args[3] = " + ps.args[3]);
-
-        ps.ma.subject.clear();
-        ps.ma.reply.clear();
-
-        if (ps.ma.subject.remaining() < ps.args[0].limit()) {
-            ps.ma.subject = ByteBuffer.allocate(ps.args[0].limit());
-        }
+        MsgArg ma = ps.ma;
+        ma.buf = arg;
+        ma.subjectOffset = subjectStart;
+        ma.subjectLength = subjectLen;
+        ma.sid = sid;
+        long size;
         switch (numArgs) {
             case 3:
-                ps.ma.subject.put(ps.args[0].array(), 0, ps.args[0].limit());
-                ps.ma.sid = parseLong(ps.args[1].array(), ps.args[1].limit());
-                ps.ma.reply.clear();
-                ps.ma.size = (int) parseLong(ps.args[2].array(), ps.args[2].limit());
+                ma.replyOffset = 0;
+                ma.replyLength = 0;
+                size = third;
                 break;
             case 4:
-                ps.ma.subject.put(ps.args[0].array(), 0, ps.args[0].limit());
-                ps.ma.sid = parseLong(ps.args[1].array(), ps.args[1].limit());
-                if (ps.ma.reply.remaining() < ps.args[2].limit()) {
-                    ps.ma.reply = ByteBuffer.allocate(ps.args[2].limit());
-                }
-                ps.ma.reply.put(ps.args[2].array(), 0, ps.args[2].limit());
-                ps.ma.size = (int) parseLong(ps.args[3].array(), ps.args[3].limit());
+                ma.replyOffset = thirdStart;
+                ma.replyLength = thirdLen;
+                size = fourth;
                 break;
             default:
                 String msg = String.format("nats: processMsgArgs bad number of args(%d): '%s'",
@@ -614,59 +661,38 @@ final class Parser {
                 throw new ParseException(msg, 0);
         }
 
-        for (int n = 0; n < MAX_MSG_ARGS; n++) {
-            ps.args[n].clear();
-        }
+        // A size that doesn't fit an int is as bad as a missing one.
+        ma.size = (size <= Integer.MAX_VALUE) ? (int) size : -1;
 
-        if (ps.ma.sid < 0) {
+        if (ma.sid < 0) {
             String str = new String(arg, offset, length);
             throw new ParseException(
                     String.format("nats: processMsgArgs bad or missing sid: '%s'", str),
-                    (int) ps.ma.sid);
+                    (int) ma.sid);
         }
-        if (ps.ma.size < 0) {
+        if (ma.size < 0) {
             String str = new String(arg, offset, length);
             throw new ParseException(
                     String.format("nats: processMsgArgs bad or missing size: '%s'", str),
-                    ps.ma.size);
+                    ma.size);
         }
-        ps.ma.subject.flip();
-        ps.ma.reply.flip();
+
+        SubjectCache cache = nc.subjectCache;
+        ma.interned = (cache != null) ? cache.intern(arg, subjectStart, subjectLen) : null;
     }
 
     // cloneMsgArg is used when the split buffer scenario has the pubArg in the existing read
     // buffer, but
     // we need to hold onto it into the next read.
     private void cloneMsgArg() {
+        MsgArg ma = ps.ma;
         ps.argBuf = ByteBuffer.wrap(ps.argBufStore);
-        ps.argBuf.put(ps.ma.subject.array(), 0, ps.ma.subject.limit());
-        if (ps.ma.reply.limit() != 0) {
-            ps.argBuf.put(ps.ma.reply.array(), 0, ps.ma.reply.limit());
-        }
-        ps.argBuf.rewind();
-        ps.argBuf.get(ps.ma.subject.array(), 0, ps.ma.subject.limit());
-        if (ps.ma.reply.limit() != 0) {
-            ps.argBuf.get(ps.ma.reply.array(), 0, ps.ma.reply.limit());
-        }
-        // ps.argBuf.flip();
-        // System.err.printf("ps.argBuf 4= %s\n", ps.argBuf);
-    }
-
-    // parseInt64 expects decimal positive numbers. We
-    // return -1 to signal error
-    static long parseLong(byte[] d, int length) {
-        long n = 0;
-        if (length == 0) {
-            return -1;
-        }
-        byte dec;
-        for (int i = 0; i < length; i++) {
-            dec = d[i];
-            if (dec < ascii_0 || dec > ascii_9) {
-                return -1;
-            }
-            n = (n * 10) + dec - ascii_0;
+        ps.argBuf.put(ma.buf, ma.subjectOffset, ma.subjectLength);
+        if (ma.replyLength != 0) {
+            ps.argBuf.put(ma.buf, ma.replyOffset, ma.replyLength);
         }
-        return n;
+        ma.buf = ps.argBufStore;
+        ma.subjectOffset = 0;
+        ma.replyOffset = (ma.replyLength != 0) ? ma.subjectLength : 0;
     }
 }
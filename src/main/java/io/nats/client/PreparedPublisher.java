@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.io.IOException;
+
+/**
+ * A {@code PreparedPublisher} publishes to a fixed subject, and optionally a fixed reply subject,
+ * on one {@code Connection}. The start of the PUB protocol line is encoded once when the
+ * publisher is created, so each {@link #publish(byte[])} only adds the payload size, the payload
+ * and the line ending. Use one for subjects that are published to over and over.
+ * 
+ * <p>A {@code PreparedPublisher} is safe for use by multiple threads, and stays valid for as long
+ * as its connection is open.
+ * 
+ * @see Connection#prepare(String)
+ * @see Connection#prepare(String, String)
+ */
+public interface PreparedPublisher {
+    /**
+     * Publishes {@code data} to this publisher's subject, with its reply subject if it has one.
+     * 
+     * @param data the message payload
+     * @throws IOException if an I/O error is encountered
+     * @throws IllegalStateException if the connection is closed
+     * @throws IllegalArgumentException if the payload exceeds the server's maximum payload size
+     */
+    void publish(byte[] data) throws IOException;
+
+    /**
+     * @return the subject this publisher publishes to
+     */
+    String getSubject();
+
+    /**
+     * @return the reply subject sent with each message, or {@code null} if there is none
+     */
+    String getReplyTo();
+
+    /**
+     * @return the connection this publisher publishes on
+     */
+    Connection getConnection();
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.io.IOException;
+
+/**
+ * Holds the {@code PUB <subject> [reply]} prefix encoded once for a
+ * PreparedPublisher; the connection appends the rest of each frame.
+ */
+class PreparedPublisherImpl implements PreparedPublisher {
+    private final ConnectionImpl conn;
+    private final String subject;
+    private final String replyTo;
+    private final byte[] prefix;
+
+    PreparedPublisherImpl(ConnectionImpl conn, String subject, String replyTo, byte[] prefix) {
+        this.conn = conn;
+        this.subject = subject;
+        this.replyTo = replyTo;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void publish(byte[] data) throws IOException {
+        conn.publishPrepared(prefix, data);
+    }
+
+    @Override
+    public String getSubject() {
+        return subject;
+    }
+
+    @Override
+    public String getReplyTo() {
+        return replyTo;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return conn;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{subject=%s, replyTo=%s}", subject, replyTo);
+    }
+}
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free, single-producer/single-consumer Channel for
+ * subscription delivery, where the connection's reader is the only producer
+ * and the subscription's feeder the only consumer. Nothing is allocated per
+ * message.
+ *
+ * <p>The ring starts small and doubles when it fills up, until it can hold the
+ * subscription's pending limit. To grow, the producer puts the element into
+ * the new, empty ring and leaves a JUMP marker in its slot in the old one;
+ * the consumer follows the marker once it has drained everything before
+ * it. Both sides index the rings with ever-increasing positions, so the
+ * position carries over unchanged. The producer treats a ring as full one
+ * slot early so that there is always room for the marker.
+ *
+ * <p>Unlike the queue-backed Channel, close() doesn't clear the ring, since
+ * only the consumer may take from it; it makes get() return null instead.
+ */
+final class RingChannel<T> extends Channel<T> {
+    private static final Object JUMP = new Object();
+    private static final int INITIAL_CAPACITY = 64;
+
+    // The most elements the channel holds before add() refuses more.
+    private volatile int limit;
+    private volatile WaitStrategy waitStrategy = WaitStrategy.PARK;
+    private volatile boolean isClosed;
+    // The consumer, while it is parked or about to park.
+    private volatile Thread waiter;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+    // Only touched by the producer.
+    private Ring producerRing;
+    // Only touched by the consumer.
+    private Ring consumerRing;
+
+    RingChannel(int limit) {
+        super((LinkedBlockingQueue<T>) null);
+        setLimit(limit);
+        producerRing = new Ring(Math.min(INITIAL_CAPACITY, maxCapacity()));
+        consumerRing = producerRing;
+    }
+
+    void setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Channel limit must be greater than 0");
+        }
+        this.limit = limit;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    void setWaitStrategy(WaitStrategy strategy) {
+        this.waitStrategy = (strategy == null) ? WaitStrategy.PARK : strategy;
+    }
+
+    WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    // A ring holds one element less than its size, so this fits limit.
+    private int maxCapacity() {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < limit + 1 && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Adds an item without blocking. Must only be called by the producer.
+     *
+     * @return {@code false} if the channel is closed or holds {@link #getLimit()} items
+     */
+    @Override
+    public boolean add(T item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        if (isClosed) {
+            return false;
+        }
+        long pos = producerIndex.get();
+        if (pos - consumerIndex.get() >= limit) {
+            return false;
+        }
+        Ring ring = producerRing;
+        int offset = (int) pos & ring.mask;
+        if (ring.slots.get((offset + 1) & ring.mask) != null) {
+            if (ring.slots.length() >= maxCapacity()) {
+                // The limit was lowered below what the rings already hold.
+                return false;
+            }
+            Ring next = new Ring(ring.slots.length() * 2);
+            next.slots.lazySet((int) pos & next.mask, item);
+            ring.next = next;
+            producerRing = next;
+            ring.slots.lazySet(offset, JUMP);
+        } else {
+            ring.slots.lazySet(offset, item);
+        }
+        // A volatile write, so that the check for a parked consumer below
+        // can't be ordered before the element is published.
+        producerIndex.set(pos + 1);
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean add(T item, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!add(item)) {
+            if (isClosed || System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+
+    @Override
+    public void put(T item) throws InterruptedException {
+        while (!add(item)) {
+            if (isClosed) {
+                return;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Takes the next item without waiting. Must only be called by the consumer.
+     *
+     * @return the next item, or {@code null} if there is none or the channel is closed
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (isClosed) {
+            return null;
+        }
+        long pos = consumerIndex.get();
+        if (pos >= producerIndex.get()) {
+            return null;
+        }
+        Ring ring = consumerRing;
+        int offset = (int) pos & ring.mask;
+        Object item = ring.slots.get(offset);
+        if (item == JUMP) {
+            ring = ring.next;
+            consumerRing = ring;
+            offset = (int) pos & ring.mask;
+            item = ring.slots.get(offset);
+        }
+        ring.slots.lazySet(offset, null);
+        consumerIndex.lazySet(pos + 1);
+        return (T) item;
+    }
+
+    /**
+     * Waits for the next item, using the channel's {@link WaitStrategy}. Must only be called by
+     * the consumer.
+     *
+     * @return the next item, or {@code null} if the channel was closed or the thread interrupted
+     */
+    @Override
+    public T get(long timeout, TimeUnit unit) throws TimeoutException {
+        long deadline = (timeout < 0) ? 0L : System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            T item = poll();
+            if (item != null || isClosed) {
+                return item;
+            }
+            long remaining = -1L;
+            if (timeout >= 0) {
+                remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Channel timed out waiting for items");
+                }
+            }
+            if (!await(remaining)) {
+                return null;
+            }
+        }
+    }
+
+    // Waits a while for an item. Returns false if the thread was
+    // interrupted.
+    private boolean await(long nanos) {
+        switch (waitStrategy) {
+            case SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                waiter = Thread.currentThread();
+                try {
+                    // Check again now that the producer can see us, so that
+                    // an item added in between isn't missed.
+                    if (consumerIndex.get() >= producerIndex.get() && !isClosed) {
+                        if (nanos < 0) {
+                            LockSupport.park(this);
+                        } else {
+                            LockSupport.parkNanos(this, nanos);
+                        }
+                    }
+                } finally {
+                    waiter = null;
+                }
+                break;
+        }
+        return !Thread.interrupted();
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    @Override
+    public int getCount() {
+        long count = producerIndex.get() - consumerIndex.get();
+        return (count > 0) ? (int) count : 0;
+    }
+
+    /**
+     * One generation of the ring. The size is a power of two.
+     */
+    private static final class Ring {
+        final AtomicReferenceArray<Object> slots;
+        final int mask;
+        // Set by the producer before it writes the JUMP marker.
+        Ring next;
+
+        Ring(int capacity) {
+            slots = new AtomicReferenceArray<Object>(capacity);
+            mask = capacity - 1;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of threads shared by a ConnectionFactory, its clones and the
+ * connections created from them. Each of them holds a reference while it
+ * uses the pool, and whoever lets go of the last one shuts it down, so a
+ * factory can drop its pool without stopping connections that still run
+ * on it.
+ */
+abstract class SharedPool {
+    // The creator holds the first reference.
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    /**
+     * Takes another reference, unless the pool is shut down already.
+     */
+    boolean retain() {
+        int n;
+        do {
+            n = refs.get();
+            if (n <= 0) {
+                return false;
+            }
+        } while (!refs.compareAndSet(n, n + 1));
+        return true;
+    }
+
+    /**
+     * Lets go of a reference, shutting the pool down if it was the last.
+     */
+    void release() {
+        if (refs.decrementAndGet() == 0) {
+            shutdown();
+        }
+    }
+
+    abstract void shutdown();
+
+    /**
+     * Returns the pool with a new reference taken for the caller, or null if
+     * there is no pool or it is shut down already.
+     */
+    static <T extends SharedPool> T share(T pool) {
+        return (pool != null && pool.retain()) ? pool : null;
+    }
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The connection's subscriptions, keyed by sid. The reader looks up every
+ * inbound MSG here, so get(long) takes no lock and doesn't box the sid.
+ * Writes are serialized on the map.
+ *
+ * <p>The table is open-addressed with linear probing. Sids are handed out in
+ * sequence starting at 1, so the sid itself is the hash and live sids
+ * rarely collide. 0 marks an empty slot. A slot's key is written before
+ * its value and never goes back to 0 in the same table, so probe chains
+ * never break under a reader. Removed slots keep their key as a tombstone
+ * until the next rehash, or until put() reuses them.
+ */
+class SidMap extends AbstractMap<Long, SubscriptionImpl> {
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile int size;
+    // Slots holding a key, live or removed. Only touched under the lock.
+    private int used;
+
+    SidMap() {}
+
+    SidMap(Map<Long, SubscriptionImpl> subs) {
+        putAll(subs);
+    }
+
+    /**
+     * @param sid the subscription id
+     * @return the subscription, or {@code null} if there is none with this sid
+     */
+    SubscriptionImpl get(long sid) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int i = (int) sid & mask;
+        while (true) {
+            SubscriptionImpl sub = t.values.get(i);
+            long key = t.keys[i];
+            if (sub != null) {
+                if (key == sid) {
+                    // The slot may have been removed and reused for another
+                    // sid between the two reads; if so, look again.
+                    if (t.values.get(i) == sub) {
+                        return sub;
+                    }
+                    continue;
+                }
+            } else if (key == 0) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    synchronized SubscriptionImpl put(long sid, SubscriptionImpl sub) {
+        if (sid <= 0) {
+            throw new IllegalArgumentException("Invalid sid: " + sid);
+        }
+        if (sub == null) {
+            throw new NullPointerException("Subscription cannot be null");
+        }
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int free = -1;
+        int i = (int) sid & mask;
+        for (;; i = (i + 1) & mask) {
+            long key = t.keys[i];
+            if (key == sid) {
+                SubscriptionImpl prev = t.values.get(i);
+                t.values.set(i, sub);
+                if (prev == null) {
+                    size++;
+                }
+                return prev;
+            }
+            if (key == 0) {
+                break;
+            }
+            if (free < 0 && t.values.get(i) == null) {
+                free = i;
+            }
+        }
+        if (free >= 0) {
+            // Reuse a tombstone earlier in the chain.
+            i = free;
+        } else {
+            used++;
+        }
+        t.keys[i] = sid;
+        t.values.set(i, sub);
+        size++;
+        if (used * 2 > t.keys.length) {
+            rehash();
+        }
+        return null;
+    }
+
+    synchronized SubscriptionImpl remove(long sid) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = (int) sid & mask;; i = (i + 1) & mask) {
+            long key = t.keys[i];
+            if (key == sid) {
+                SubscriptionImpl prev = t.values.get(i);
+                if (prev != null) {
+                    t.values.set(i, null);
+                    size--;
+                }
+                return prev;
+            }
+            if (key == 0) {
+                return null;
+            }
+        }
+    }
+
+    // Copies the live entries into a fresh table sized for them, dropping
+    // tombstones. Readers keep using the old table, which is no longer
+    // written to, until they see the new one.
+    private void rehash() {
+        int capacity = MIN_CAPACITY;
+        while (capacity < size * 4) {
+            capacity <<= 1;
+        }
+        Table old = table;
+        Table t = new Table(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < old.keys.length; j++) {
+            SubscriptionImpl sub = old.values.get(j);
+            if (sub != null) {
+                long sid = old.keys[j];
+                int i = (int) sid & mask;
+                while (t.keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                t.keys[i] = sid;
+                t.values.set(i, sub);
+            }
+        }
+        used = size;
+        table = t;
+    }
+
+    @Override
+    public SubscriptionImpl get(Object key) {
+        return (key instanceof Long) ? get(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public SubscriptionImpl put(Long key, SubscriptionImpl value) {
+        return put(key.longValue(), value);
+    }
+
+    @Override
+    public SubscriptionImpl remove(Object key) {
+        return (key instanceof Long) ? remove(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+        used = 0;
+    }
+
+    /**
+     * Returns a snapshot of the entries, so that callers can iterate over it while
+     * subscriptions come and go.
+     */
+    @Override
+    public Set<Map.Entry<Long, SubscriptionImpl>> entrySet() {
+        Table t = table;
+        List<Map.Entry<Long, SubscriptionImpl>> entries =
+                new ArrayList<Map.Entry<Long, SubscriptionImpl>>();
+        for (int i = 0; i < t.keys.length; i++) {
+            SubscriptionImpl sub = t.values.get(i);
+            if (sub != null) {
+                entries.add(new SimpleImmutableEntry<Long, SubscriptionImpl>(t.keys[i], sub));
+            }
+        }
+        return Collections.unmodifiableSet(new HashSet<Map.Entry<Long, SubscriptionImpl>>(entries));
+    }
+
+    /**
+     * One generation of the hash table. The capacity is a power of two.
+     */
+    private static final class Table {
+        final long[] keys;
+        final AtomicReferenceArray<SubscriptionImpl> values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<SubscriptionImpl>(capacity);
+        }
+    }
+}
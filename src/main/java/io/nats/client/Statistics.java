@@ -7,18 +7,25 @@
  *******************************************************************************/
 package io.nats.client;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 // Tracks various stats received and sent on this connection,
-// including counts for messages and bytes.
+// including counts for messages and bytes. The counters are striped
+// LongAdders, since every publisher thread bumps the outbound ones on each
+// publish and a single AtomicLong would bounce between their cores.
 public class Statistics implements Cloneable {
 
-	private AtomicLong inMsgs = new AtomicLong();
-	private AtomicLong outMsgs = new AtomicLong();
-	private AtomicLong inBytes = new AtomicLong();
-	private AtomicLong outBytes = new AtomicLong();
-	private AtomicLong reconnects = new AtomicLong();
-	private AtomicLong flushes = new AtomicLong();
+	private LongAdder inMsgs = new LongAdder();
+	private LongAdder outMsgs = new LongAdder();
+	private LongAdder inBytes = new LongAdder();
+	private LongAdder outBytes = new LongAdder();
+	private LongAdder reconnects = new LongAdder();
+	private LongAdder flushes = new LongAdder();
+	private LongAdder subjectCacheHits = new LongAdder();
+	private LongAdder subjectCacheMisses = new LongAdder();
+	private LatencyHistogram requestLatency = new LatencyHistogram();
+	private LatencyHistogram flushLatency = new LatencyHistogram();
+	private LatencyHistogram deliveryLatency = new LatencyHistogram();
 	
 	Statistics () {
 		
@@ -33,6 +40,11 @@ public class Statistics implements Cloneable {
         this.outMsgs = obj.outMsgs;
         this.reconnects = obj.reconnects;
         this.flushes = obj.flushes;
+        this.subjectCacheHits = obj.subjectCacheHits;
+        this.subjectCacheMisses = obj.subjectCacheMisses;
+        this.requestLatency = obj.requestLatency;
+        this.flushLatency = obj.flushLatency;
+        this.deliveryLatency = obj.deliveryLatency;
     }
 
 	@Override
@@ -40,32 +52,63 @@ public class Statistics implements Cloneable {
 		return super.clone();
 	}
 
+	/**
+	 * Returns a copy of the current counts that no longer changes, unlike the
+	 * {@code Statistics} returned by {@link AbstractConnection#getStats()}, which reads
+	 * the live counters on every call. Each counter is read once, so all the
+	 * getters and {@code toString()} of the snapshot agree with one another,
+	 * though counts still moving while the snapshot is taken may be read a
+	 * moment apart.
+	 * 
+	 * @return a point-in-time copy of these statistics
+	 */
+	public Statistics snapshot() {
+		Statistics copy = new Statistics();
+		copy.inMsgs.add(inMsgs.sum());
+		copy.inBytes.add(inBytes.sum());
+		copy.outMsgs.add(outMsgs.sum());
+		copy.outBytes.add(outBytes.sum());
+		copy.reconnects.add(reconnects.sum());
+		copy.flushes.add(flushes.sum());
+		copy.subjectCacheHits.add(subjectCacheHits.sum());
+		copy.subjectCacheMisses.add(subjectCacheMisses.sum());
+		copy.requestLatency = requestLatency.snapshot();
+		copy.flushLatency = flushLatency.snapshot();
+		copy.deliveryLatency = deliveryLatency.snapshot();
+		return copy;
+	}
+
 	public void clear() {
-		this.inBytes.set(0L);
-		this.inMsgs.set(0L);
-		this.outBytes.set(0L);
-		this.outMsgs.set(0L);
-		this.flushes.set(0L);
+		this.inBytes.reset();
+		this.inMsgs.reset();
+		this.outBytes.reset();
+		this.outMsgs.reset();
+		this.flushes.reset();
+		this.subjectCacheHits.reset();
+		this.subjectCacheMisses.reset();
+		this.requestLatency.reset();
+		this.flushLatency.reset();
+		this.deliveryLatency.reset();
 	}
 
 	public String toString() {
 		return String.format("{in: msgs=%d, bytes=%d, out: msgs=%d, bytes=%d, reconnects: %d, flushes: %d}", 
-				inMsgs.get(), inBytes.get(), outMsgs.get(), outBytes.get(), reconnects.get(), flushes.get());
+				inMsgs.sum(), inBytes.sum(), outMsgs.sum(), outBytes.sum(), reconnects.sum(), flushes.sum());
 	}
 	/**
 	 * @return the number of messages that have been 
 	 * received on this Connection.
 	 */
 	public long getInMsgs() {
-		return inMsgs.get();
+		return inMsgs.sum();
 	}
 
 	/**
 	 * Increments the number of messages received on 
 	 * this connection. 
 	 */
-	long incrementInMsgs() {
-		return inMsgs.incrementAndGet();
+	void incrementInMsgs() {
+		inMsgs.increment();
 	}
 
 	/**
@@ -73,11 +116,18 @@ public class Statistics implements Cloneable {
 	 * this Connection.
 	 */
 	public long getOutMsgs() {
-		return outMsgs.get();
+		return outMsgs.sum();
+	}
+
+	void incrementOutMsgs() {
+		outMsgs.increment();
 	}
 
-	long incrementOutMsgs() {
-		return outMsgs.incrementAndGet();
+	/*
+	 * Increments the number of messages published by a batch.
+	 */
+	void incrementOutMsgs(long delta) {
+		outMsgs.add(delta);
 	}
 
 	/**
@@ -85,14 +135,14 @@ public class Statistics implements Cloneable {
 	 * Connection.
 	 */
 	public long getInBytes() {
-		return inBytes.get();
+		return inBytes.sum();
 	}
 	
 	/*
 	 * Increments the number of bytes received. 
 	 */
-	long incrementInBytes(long amount) {
-		return inBytes.addAndGet(amount);
+	void incrementInBytes(long amount) {
+		inBytes.add(amount);
 	}
 
 	/**
@@ -100,13 +150,13 @@ public class Statistics implements Cloneable {
 	 * on this Connection.
 	 */
 	public long getOutBytes() {
-		return outBytes.get();
+		return outBytes.sum();
 	}
 	/*
 	 * Increments the number of bytes output 
 	 */
-	long incrementOutBytes(long delta) {
-		return outBytes.addAndGet(delta);
+	void incrementOutBytes(long delta) {
+		outBytes.add(delta);
 	}
 
 	/**
@@ -114,11 +164,11 @@ public class Statistics implements Cloneable {
 	 * reconnected.
 	 */
 	public long getReconnects() {
-		return reconnects.get();
+		return reconnects.sum();
 	}
 	
-	long incrementReconnects() {
-		return reconnects.incrementAndGet();
+	void incrementReconnects() {
+		reconnects.increment();
 	}
 	
 	/**
@@ -126,12 +176,72 @@ public class Statistics implements Cloneable {
 	 * reconnected.
 	 */
 	long getFlushes() {
-		return flushes.get();
+		return flushes.sum();
 	}
 	
-	long incrementFlushes() {
-		return flushes.incrementAndGet();
+	void incrementFlushes() {
+		flushes.increment();
 	}
 
-}
+	/**
+	 * @return the number of inbound message subjects that 
+	 * were found in the subject cache.
+	 */
+	public long getSubjectCacheHits() {
+		return subjectCacheHits.sum();
+	}
+
+	void incrementSubjectCacheHits() {
+		subjectCacheHits.increment();
+	}
+
+	/**
+	 * @return the number of inbound message subjects that 
+	 * had to be added to the subject cache.
+	 */
+	public long getSubjectCacheMisses() {
+		return subjectCacheMisses.sum();
+	}
+
+	void incrementSubjectCacheMisses() {
+		subjectCacheMisses.increment();
+	}
+
+	/**
+	 * @return the round-trip times of the requests on this
+	 * Connection that got a reply, from sending the request
+	 * to receiving the reply.
+	 */
+	public LatencyHistogram getRequestLatency() {
+		return requestLatency;
+	}
 
+	void recordRequestLatency(long nanos) {
+		requestLatency.record(nanos);
+	}
+
+	/**
+	 * @return the times taken by flush() calls on this
+	 * Connection, i.e. PING/PONG round trips to the server.
+	 */
+	public LatencyHistogram getFlushLatency() {
+		return flushLatency;
+	}
+
+	void recordFlushLatency(long nanos) {
+		flushLatency.record(nanos);
+	}
+
+	/**
+	 * @return the times from an inbound message being parsed
+	 * to its asynchronous subscription's MessageHandler being
+	 * called with it.
+	 */
+	public LatencyHistogram getDeliveryLatency() {
+		return deliveryLatency;
+	}
+
+	void recordDeliveryLatency(long nanos) {
+		deliveryLatency.record(nanos);
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used intern table for inbound MSG subjects, so
+ * that a subject seen before resolves to one shared byte[] and String
+ * instead of fresh copies for every message. Lookups go through a reusable
+ * probe key and don't allocate. Owned by the connection's reader; not
+ * thread-safe.
+ */
+class SubjectCache {
+    private final int capacity;
+    private final Statistics stats;
+    private final Probe probe = new Probe();
+    private final LinkedHashMap<Object, Entry> map;
+
+    SubjectCache(final int capacity, Statistics stats) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Subject cache size must be greater than 0");
+        }
+        this.capacity = capacity;
+        this.stats = stats;
+        this.map = new LinkedHashMap<Object, Entry>(capacity * 4 / 3 + 1, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, SubjectCache.Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the interned form of a subject, adding it if it hasn't been seen recently.
+     *
+     * @param buf the buffer holding the subject
+     * @param offset the offset of the subject in {@code buf}
+     * @param length the length of the subject
+     * @return the shared entry for the subject
+     */
+    Entry intern(byte[] buf, int offset, int length) {
+        probe.set(buf, offset, length);
+        Entry entry = map.get(probe);
+        probe.set(null, 0, 0);
+        if (entry != null) {
+            stats.incrementSubjectCacheHits();
+            return entry;
+        }
+        stats.incrementSubjectCacheMisses();
+        entry = new Entry(Arrays.copyOfRange(buf, offset, offset + length));
+        map.put(entry, entry);
+        return entry;
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    static int hash(byte[] buf, int offset, int length) {
+        int h = 1;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + buf[i];
+        }
+        return h;
+    }
+
+    /**
+     * An interned subject. The byte[] is shared by every Message with this
+     * subject and must not be modified.
+     */
+    static final class Entry {
+        final byte[] bytes;
+        final String string;
+        private final int hash;
+
+        Entry(byte[] bytes) {
+            this.bytes = bytes;
+            this.string = new String(bytes, 0, bytes.length);
+            this.hash = SubjectCache.hash(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof Entry) {
+                return Arrays.equals(bytes, ((Entry) obj).bytes);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A lookup key over a range of the read buffer.
+     */
+    private static final class Probe {
+        private byte[] buf;
+        private int offset;
+        private int length;
+        private int hash;
+
+        void set(byte[] buf, int offset, int length) {
+            this.buf = buf;
+            this.offset = offset;
+            this.length = length;
+            this.hash = (buf != null) ? SubjectCache.hash(buf, offset, length) : 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            byte[] other = ((Entry) obj).bytes;
+            if (other.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (other[i] != buf[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
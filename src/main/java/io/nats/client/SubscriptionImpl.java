@@ -7,14 +7,20 @@ package io.nats.client;
 
 import static io.nats.client.Constants.ERR_BAD_SUBSCRIPTION;
 
+import io.nats.client.BufferPool.PooledBuffer;
+import io.nats.client.Parser.MsgArg;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.management.ObjectName;
+
 abstract class SubscriptionImpl implements Subscription {
 
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -32,30 +38,38 @@ abstract class SubscriptionImpl implements Subscription {
     // only be processed by one member of the group.
     String queue;
 
+    // The reader counts and queues inbound messages without taking mu, so
+    // the state it touches is atomic or volatile.
+
     // Number of messages delivered on this subscription
-    long msgs;
+    final AtomicLong msgs = new AtomicLong();
     AtomicLong delivered = new AtomicLong(); // uint64
-    long bytes; // uint64
+    final AtomicLong bytes = new AtomicLong(); // uint64
     // int pendingMax; // uint64 in Go, int here due to underlying data structure
-    long max; // AutoUnsubscribe max
+    volatile long max; // AutoUnsubscribe max
 
     protected boolean closed;
     protected boolean connClosed;
 
     // slow consumer flag
-    boolean sc;
+    volatile boolean sc;
 
     ConnectionImpl conn = null;
-    Channel<Message> mch;
-
-    // Pending stats, async subscriptions, high-speed etc.
-    int pMsgs;
-    int pBytes;
-    int pMsgsMax; // highest number of pending msgs
-    int pBytesMax; // highest number of pending bytes
+    volatile Channel<Message> mch;
+
+    // Pending stats, async subscriptions, high-speed etc. The counts are
+    // raised by the reader and lowered by the consumer; the high water marks
+    // and the dropped count are only written by the reader.
+    final AtomicInteger pMsgs = new AtomicInteger();
+    final AtomicLong pBytes = new AtomicLong();
+    volatile int pMsgsMax; // highest number of pending msgs
+    volatile long pBytesMax; // highest number of pending bytes
     int pMsgsLimit = 65536;
     long pBytesLimit = pMsgsLimit * 1024;
-    int dropped;
+    volatile int dropped;
+
+    // Set while the subscription's MBean is registered.
+    volatile ObjectName mxbeanName;
 
     SubscriptionImpl(ConnectionImpl conn, String subject, String queue, int maxPendingMsgs,
             long maxPendingBytes) {
@@ -66,7 +80,24 @@ abstract class SubscriptionImpl implements Subscription {
         // this.pendingMax = conn.getOptions().getMaxPendingMsgs();
         // }
         this.setMaxPendingMsgs(maxPendingMsgs);
-        this.mch = new Channel<Message>();
+        this.mch = newChannel();
+    }
+
+    // Creates the channel messages are delivered through. Called from the
+    // constructor once the pending limits are set, so an override must not
+    // rely on the subclass's own fields.
+    Channel<Message> newChannel() {
+        return new Channel<Message>();
+    }
+
+    // Creates the Message for a MSG delivered to this subscription.
+    Message newMessage(MsgArg ma, byte[] buf, int offset, int length) {
+        return new Message(ma, this, buf, offset, length);
+    }
+
+    // Zero-copy variant of newMessage(), for payloads within a pooled read buffer.
+    Message newMessage(MsgArg ma, PooledBuffer buf, int offset, int length) {
+        return new Message(ma, this, buf, offset, length);
     }
 
     void closeChannel() {
@@ -100,43 +131,33 @@ abstract class SubscriptionImpl implements Subscription {
         this.mch = ch;
     }
 
+    // Returns true once more messages than the auto-unsubscribe max have
+    // arrived.
     public boolean tallyMessage(long length) {
-        mu.lock();
-        try {
-            // logger.trace("getMax()={}, msgs={}",
-            // max, msgs);
-            if (max > 0 && msgs > max) {
-                return true;
-            }
-
-            this.msgs++;
-            this.bytes += bytes;
-
-        } finally {
-            mu.unlock();
+        long prior = msgs.getAndIncrement();
+        long localMax = max;
+        if (localMax > 0 && prior > localMax) {
+            return true;
         }
-
+        bytes.addAndGet(length);
         return false;
-
     }
 
     protected void handleSlowConsumer(Message msg) {
         dropped++;
         conn.processSlowConsumer(this);
-        pMsgs--;
-        if (msg.getData() != null) {
-            pBytes -= msg.getData().length;
-        }
+        pMsgs.decrementAndGet();
+        pBytes.addAndGet(-msg.getDataLength());
+        // Nobody will see a dropped message, so let go of its read buffer.
+        msg.release();
     }
 
     protected long tallyDeliveredMessage(Message msg) {
-        delivered.incrementAndGet();
-        if (msg.getData() != null) {
-            pBytes -= msg.getData().length;
-        }
-        pMsgs--;
+        long n = delivered.incrementAndGet();
+        pBytes.addAndGet(-msg.getDataLength());
+        pMsgs.decrementAndGet();
 
-        return delivered.get();
+        return n;
     }
 
     // returns false if the message could not be added because
@@ -148,32 +169,41 @@ abstract class SubscriptionImpl implements Subscription {
         // mch.getCount(),
         // max);
         // Subscription internal stats
-        pMsgs++;
-        if (pMsgs > pMsgsMax) {
-            pMsgsMax = pMsgs;
+        int pendingMsgs = pMsgs.incrementAndGet();
+        if (pendingMsgs > pMsgsMax) {
+            pMsgsMax = pendingMsgs;
         }
-        if (m.getData() != null) {
-            pBytes += m.getData().length;
-        }
-        if (pBytes > pBytesMax) {
-            pBytesMax = pBytes;
+        long pendingBytes = pBytes.addAndGet(m.getDataLength());
+        if (pendingBytes > pBytesMax) {
+            pBytesMax = pendingBytes;
         }
 
         // Check for a Slow Consumer
-        if (pMsgs > pMsgsLimit || pBytes > pBytesLimit) {
+        if (pendingMsgs > pMsgsLimit || pendingBytes > pBytesLimit) {
             handleSlowConsumer(m);
             return false;
         }
 
+        Channel<Message> mch = this.mch;
         if (mch != null) {
             if (mch.getCount() >= getMaxPendingMsgs()) {
                 handleSlowConsumer(m);
                 // logger.trace("MAXIMUM COUNT ({}) REACHED FOR SID: {}",
                 // max, getSid());
                 return false;
+            } else if (!mch.add(m)) {
+                if (mch.isClosed()) {
+                    // Unsubscribed while the message was on its way.
+                    pMsgs.decrementAndGet();
+                    pBytes.addAndGet(-m.getDataLength());
+                    m.release();
+                } else {
+                    // A bounded channel is full.
+                    handleSlowConsumer(m);
+                }
+                return false;
             } else {
                 sc = false;
-                mch.add(m);
                 // logger.trace("Added message to channel: " + m);
             }
         } // mch != null
@@ -281,6 +311,10 @@ abstract class SubscriptionImpl implements Subscription {
         if (pending <= 0) {
             pMsgsLimit = ConnectionFactory.DEFAULT_MAX_PENDING_MSGS;
         }
+        Channel<Message> ch = mch;
+        if (ch instanceof RingChannel) {
+            ((RingChannel<Message>) ch).setLimit(pMsgsLimit);
+        }
     }
 
     /**
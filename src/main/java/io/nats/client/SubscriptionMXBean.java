@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+/**
+ * The JMX management interface of a {@code Subscription}, registered when
+ * {@link ConnectionFactory#setJmxEnabled(boolean)} is set. Pending counts are of messages that
+ * have been received but not yet delivered; a growing backlog, a high water mark near the limits
+ * or a rising dropped count point to a subscriber that can't keep up.
+ */
+public interface SubscriptionMXBean {
+    /**
+     * @return the subject subscribed to
+     */
+    String getSubject();
+
+    /**
+     * @return the queue group, or {@code null} if the subscription isn't in one
+     */
+    String getQueue();
+
+    /**
+     * @return the subscription id
+     */
+    long getSid();
+
+    /**
+     * @return the number of messages received for the subscription
+     */
+    long getMsgs();
+
+    /**
+     * @return the number of payload bytes received for the subscription
+     */
+    long getBytes();
+
+    /**
+     * @return the number of messages handed to the subscriber
+     */
+    long getDelivered();
+
+    /**
+     * @return the number of messages waiting to be delivered
+     */
+    int getPendingMsgs();
+
+    /**
+     * @return the number of payload bytes waiting to be delivered
+     */
+    long getPendingBytes();
+
+    /**
+     * @return the most messages that have been waiting at once
+     */
+    int getPendingMsgsMax();
+
+    /**
+     * @return the most payload bytes that have been waiting at once
+     */
+    long getPendingBytesMax();
+
+    /**
+     * @return the pending message limit past which messages are dropped
+     */
+    int getPendingMsgsLimit();
+
+    /**
+     * @return the pending byte limit past which messages are dropped
+     */
+    long getPendingBytesLimit();
+
+    /**
+     * @return the number of messages dropped because the subscriber fell behind
+     */
+    int getDropped();
+
+    /**
+     * @return whether the subscription is currently a slow consumer, i.e. it has dropped
+     *         messages and has not accepted one since
+     */
+    boolean isSlowConsumer();
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timer wheel, for large numbers of short timeouts that are
+ * usually cancelled before they fire, such as those of asynchronous
+ * requests. One thread advances the wheel a tick at a time and runs the
+ * timeouts that have come due, so scheduling and cancelling cost no thread
+ * and no lock.
+ *
+ * <p>New timeouts are handed to the wheel thread through a queue, and it puts
+ * them into the bucket for their deadline, with the number of full turns
+ * of the wheel still to wait. Cancelled timeouts are only flagged and are
+ * dropped when the wheel reaches their bucket. Timeouts fire up to a tick
+ * late, and run on the wheel thread, so they must be quick.
+ */
+final class TimerWheel implements Runnable {
+    static final long DEFAULT_TICK_MILLIS = 10;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final long tickNanos;
+    private final ArrayList<Timeout>[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<Timeout>();
+    private final Thread thread;
+    private final long startTime;
+    private volatile boolean shutdown;
+    // Only touched by the wheel thread.
+    private long tick;
+
+    /**
+     * The wheel shared by all connections, started with the first timeout.
+     */
+    private static final class Shared {
+        static final TimerWheel WHEEL = new TimerWheel(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS,
+                DEFAULT_WHEEL_SIZE, "timerwheel");
+    }
+
+    static TimerWheel shared() {
+        return Shared.WHEEL;
+    }
+
+    TimerWheel(long tick, TimeUnit unit, int wheelSize, String name) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Tick must be greater than 0");
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        this.tickNanos = unit.toNanos(tick);
+        this.buckets = newBuckets(wheelSize);
+        this.mask = wheelSize - 1;
+        this.startTime = System.nanoTime();
+        this.thread = new NATSThreadFactory(name).newThread(this);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayList<Timeout>[] newBuckets(int wheelSize) {
+        ArrayList<Timeout>[] buckets = new ArrayList[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayList<Timeout>();
+        }
+        return buckets;
+    }
+
+    /**
+     * Runs {@code task} on the wheel thread once {@code delay} has elapsed, unless the returned
+     * timeout is cancelled first.
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+        added.add(timeout);
+        return timeout;
+    }
+
+    void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        while (!shutdown) {
+            long deadline = startTime + (tick + 1) * tickNanos;
+            long wait;
+            while (!shutdown && (wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            if (shutdown) {
+                break;
+            }
+            transferAdded();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    // Moves newly scheduled timeouts into their buckets.
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long due = (timeout.deadline - startTime) / tickNanos;
+            // Anything already due goes into the bucket about to expire.
+            long ticks = Math.max(due, tick);
+            timeout.rounds = (ticks - tick) / buckets.length;
+            buckets[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    // Runs the bucket's due timeouts and drops the cancelled ones, moving
+    // those still to wait down over them in one pass rather than removing
+    // from the middle of the list.
+    private void expire(ArrayList<Timeout> bucket) {
+        int size = bucket.size();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.cancelled) {
+                continue;
+            }
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                bucket.set(kept++, timeout);
+                continue;
+            }
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                logger.error("Error in timeout task", e);
+            }
+        }
+        bucket.subList(kept, size).clear();
+    }
+
+    /**
+     * A scheduled task.
+     */
+    static final class Timeout {
+        final Runnable task;
+        final long deadline;
+        // Only touched by the wheel thread.
+        long rounds;
+        volatile boolean cancelled;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Keeps the task from running, if it hasn't already.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+/**
+ * How a thread waiting for messages on an asynchronous subscription waits for the next one to
+ * arrive.
+ *
+ * @see ConnectionFactory#setSubscriptionWaitStrategy(WaitStrategy)
+ */
+public enum WaitStrategy {
+    /**
+     * Busy-spin. Lowest latency, but keeps a core busy for every waiting subscription.
+     */
+    SPIN,
+    /**
+     * Spin, yielding the processor between checks.
+     */
+    YIELD,
+    /**
+     * Park the thread until the reader hands over a message. Uses no CPU while idle. This is the
+     * default.
+     */
+    PARK
+}
@@ -10,6 +10,8 @@ package io.nats.client;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -109,6 +111,53 @@ public class AsyncSubscriptionImplTest {
 
 	}
 
+	@Test
+	public void testMessagePool() {
+		final List<Message> delivered = new ArrayList<Message>();
+		MessageHandler mcb = new MessageHandler() {
+			@Override
+			public void onMessage(Message msg) {
+				delivered.add(msg);
+				if (delivered.size() == 2) {
+					msg.retain();
+				}
+			}
+		};
+
+		Parser.MsgArg ma = new Parser(new ConnectionImpl(new Options())).new MsgArg();
+		ma.buf = "foo".getBytes();
+		ma.subjectLength = ma.buf.length;
+		ma.size = 5;
+
+		ConnectionImpl nc = mock(ConnectionImpl.class);
+		try (AsyncSubscriptionImpl s = new AsyncSubscriptionImpl(nc, "foo", null, mcb, 50, 0))
+		{
+			// Without a pool every delivery gets a new message
+			Message m1 = s.newMessage(ma, "hello".getBytes(), 0, 5);
+			assertTrue(s.processMsg(m1));
+			assertNotSame(m1, s.newMessage(ma, "hello".getBytes(), 0, 5));
+
+			s.setMessagePoolSize(4);
+			delivered.clear();
+			m1 = s.newMessage(ma, "hello".getBytes(), 0, 5);
+			String subj = m1.getSubject();
+			assertTrue(s.processMsg(m1));
+
+			// The handler is done with it, so it gets refilled
+			Message m2 = s.newMessage(ma, "world".getBytes(), 0, 5);
+			assertSame(m1, m2);
+			assertEquals("world", new String(m2.getData()));
+			assertSame(subj, m2.getSubject());
+			assertEquals(s, m2.getSubscription());
+
+			// The second delivery is retained by the handler
+			assertTrue(s.processMsg(m2));
+			Message m3 = s.newMessage(ma, "again".getBytes(), 0, 5);
+			assertNotSame(m2, m3);
+			assertEquals("world", new String(m2.getData()));
+		}
+	}
+
 	@Test
 	public void testUnsubscribeConnectionNull() {
 		boolean exThrown = false;
@@ -14,6 +14,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
@@ -29,11 +30,16 @@ import org.junit.experimental.categories.Category;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -41,6 +47,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 @Category(UnitTest.class)
 public class BasicTest {
     @Rule
@@ -519,6 +528,90 @@ public class BasicTest {
         }
     }
 
+    @Test
+    public void testRequestMux() throws Exception {
+        ConnectionFactory cf = new ConnectionFactory();
+        cf.setUseRequestMux(true);
+        try (final ConnectionImpl c = (ConnectionImpl) cf.createConnection()) {
+            try (AsyncSubscription s = c.subscribeAsync("foo", new MessageHandler() {
+                public void onMessage(Message m) {
+                    try {
+                        // Echo the request back
+                        c.publish(m.getReplyTo(), m.getData());
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            })) {
+                sleep(100);
+                List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+                for (int i = 0; i < 5; i++) {
+                    final int thread = i;
+                    results.add(executor.submit(new Callable<Boolean>() {
+                        public Boolean call() throws Exception {
+                            for (int j = 0; j < 20; j++) {
+                                byte[] request = String.format("%d-%d", thread, j).getBytes();
+                                Message m = c.request("foo", request, 5000);
+                                assertArrayEquals("Reply went to the wrong request", request,
+                                        m.getData());
+                            }
+                            return true;
+                        }
+                    }));
+                }
+                for (Future<Boolean> result : results) {
+                    assertTrue(result.get(30, TimeUnit.SECONDS));
+                }
+                // The responder and the one shared reply subscription
+                assertEquals(2, c.getSubs().size());
+            }
+
+            boolean timedOut = false;
+            try {
+                c.request("bar", "help".getBytes(), 10);
+            } catch (TimeoutException e) {
+                timedOut = true;
+            }
+            assertTrue("Should have timed out", timedOut);
+        }
+    }
+
+    @Test
+    public void testRequestAsync() throws Exception {
+        try (final Connection c = new ConnectionFactory().createConnection()) {
+            try (AsyncSubscription s = c.subscribeAsync("foo", new MessageHandler() {
+                public void onMessage(Message m) {
+                    try {
+                        // Echo the request back
+                        c.publish(m.getReplyTo(), m.getData());
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            })) {
+                sleep(100);
+                List<CompletableFuture<Message>> replies =
+                        new ArrayList<CompletableFuture<Message>>();
+                for (int i = 0; i < 1000; i++) {
+                    replies.add(c.requestAsync("foo", Integer.toString(i).getBytes(), 5000));
+                }
+                for (int i = 0; i < replies.size(); i++) {
+                    Message m = replies.get(i).get(10, TimeUnit.SECONDS);
+                    assertArrayEquals("Reply went to the wrong request",
+                            Integer.toString(i).getBytes(), m.getData());
+                }
+            }
+
+            CompletableFuture<Message> noReply = c.requestAsync("bar", "help".getBytes(), 10);
+            try {
+                noReply.get(5, TimeUnit.SECONDS);
+                fail("Should have timed out");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+        }
+    }
+
     @Test
     public void testRequestNoBody() {
         final byte[] response = "I will help you.".getBytes();
@@ -611,6 +704,98 @@ public class BasicTest {
         }
     }
 
+    @Test
+    public void testPublishBatch() throws Exception {
+        try (Connection c = new ConnectionFactory().createConnection()) {
+            try (SyncSubscription s = c.subscribeSync("foo")) {
+                List<Message> batch = new ArrayList<Message>();
+                int bytes = 0;
+                // Enough to take several chunks
+                for (int i = 0; i < 10000; i++) {
+                    byte[] data = String.format("batch message %d", i).getBytes();
+                    batch.add(new Message("foo", (i % 2 == 0) ? "bar" : null, data));
+                    bytes += data.length;
+                }
+                batch.add(new Message("foo", null, null));
+                c.publishBatch(batch);
+
+                for (int i = 0; i < 10000; i++) {
+                    Message m = s.nextMessage(5000);
+                    assertEquals(String.format("batch message %d", i), new String(m.getData()));
+                    assertEquals((i % 2 == 0) ? "bar" : null, m.getReplyTo());
+                }
+                byte[] empty = s.nextMessage(5000).getData();
+                assertTrue(empty == null || empty.length == 0);
+
+                Statistics stats = c.getStats();
+                assertEquals(10001, stats.getOutMsgs());
+                assertEquals(bytes, stats.getOutBytes());
+            }
+
+            // A bad message rejects the whole batch
+            List<Message> batch = new ArrayList<Message>();
+            batch.add(new Message("foo", null, "ok".getBytes()));
+            batch.add(new Message("foo", null, new byte[(int) c.getMaxPayload() + 1]));
+            boolean exThrown = false;
+            try {
+                c.publishBatch(batch);
+            } catch (IllegalArgumentException e) {
+                exThrown = true;
+            }
+            assertTrue("Should have thrown IllegalArgumentException", exThrown);
+            assertEquals(10001, c.getStats().getOutMsgs());
+        }
+    }
+
+    @Test
+    public void testPreparedPublisher() throws Exception {
+        try (Connection c = new ConnectionFactory().createConnection()) {
+            try (SyncSubscription s = c.subscribeSync("foo")) {
+                PreparedPublisher foo = c.prepare("foo");
+                PreparedPublisher fooBar = c.prepare("foo", "bar");
+                assertEquals("foo", foo.getSubject());
+                assertNull(foo.getReplyTo());
+                assertEquals("bar", fooBar.getReplyTo());
+                assertSame(c, foo.getConnection());
+
+                for (int i = 0; i < 100; i++) {
+                    foo.publish(String.format("prepared %d", i).getBytes());
+                    fooBar.publish(String.format("replied %d", i).getBytes());
+                }
+                foo.publish(null);
+
+                for (int i = 0; i < 100; i++) {
+                    Message m = s.nextMessage(5000);
+                    assertEquals("foo", m.getSubject());
+                    assertNull(m.getReplyTo());
+                    assertEquals(String.format("prepared %d", i), new String(m.getData()));
+                    m = s.nextMessage(5000);
+                    assertEquals("bar", m.getReplyTo());
+                    assertEquals(String.format("replied %d", i), new String(m.getData()));
+                }
+                byte[] empty = s.nextMessage(5000).getData();
+                assertTrue(empty == null || empty.length == 0);
+                assertEquals(201, c.getStats().getOutMsgs());
+
+                boolean exThrown = false;
+                try {
+                    foo.publish(new byte[(int) c.getMaxPayload() + 1]);
+                } catch (IllegalArgumentException e) {
+                    exThrown = true;
+                }
+                assertTrue("Should have thrown IllegalArgumentException", exThrown);
+            }
+
+            boolean exThrown = false;
+            try {
+                c.prepare("");
+            } catch (IllegalArgumentException e) {
+                exThrown = true;
+            }
+            assertTrue("Should have thrown IllegalArgumentException", exThrown);
+        }
+    }
+
     @Test
     public void testStats() {
         try (Connection c = new ConnectionFactory().createConnection()) {
@@ -713,6 +898,150 @@ public class BasicTest {
         assertEquals(s1.getReconnects(), s2.getReconnects());
     }
 
+    @Test
+    public void testStatsSnapshot() throws Exception {
+        Statistics live = new Statistics();
+        live.incrementOutMsgs();
+        live.incrementOutBytes(512);
+        live.incrementInMsgs();
+        live.incrementInBytes(8192);
+
+        Statistics snap = live.snapshot();
+        live.incrementOutMsgs(10);
+        live.incrementOutBytes(100);
+        assertEquals(1, snap.getOutMsgs());
+        assertEquals(512, snap.getOutBytes());
+        assertEquals(11, live.getOutMsgs());
+        assertEquals(612, live.getOutBytes());
+
+        live.clear();
+        assertEquals(0, live.getInMsgs());
+        assertEquals(1, snap.getInMsgs());
+        assertEquals(8192, snap.getInBytes());
+
+        // Counts from many publishers at once all add up
+        final Statistics stats = new Statistics();
+        final int threads = 8;
+        final int count = 100000;
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < threads; i++) {
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    for (int j = 0; j < count; j++) {
+                        stats.incrementOutMsgs();
+                        stats.incrementOutBytes(3);
+                    }
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> f : executor.invokeAll(tasks)) {
+            f.get();
+        }
+        Statistics total = stats.snapshot();
+        assertEquals(threads * count, total.getOutMsgs());
+        assertEquals(3L * threads * count, total.getOutBytes());
+    }
+
+    @Test
+    public void testLatencyStats() throws Exception {
+        try (final Connection c = new ConnectionFactory().createConnection()) {
+            final CountDownLatch delivered = new CountDownLatch(10);
+            try (AsyncSubscription responder = c.subscribe("foo", new MessageHandler() {
+                public void onMessage(Message msg) {
+                    try {
+                        if (msg.getReplyTo() != null) {
+                            c.publish(msg.getReplyTo(), "reply".getBytes());
+                        }
+                    } catch (IOException e) {
+                        fail(e.getMessage());
+                    }
+                    delivered.countDown();
+                }
+            })) {
+                for (int i = 0; i < 5; i++) {
+                    c.publish("foo", null);
+                    assertNotNull(c.request("foo", null, 5000));
+                }
+                assertTrue(delivered.await(5, TimeUnit.SECONDS));
+                c.flush();
+
+                Statistics stats = c.getStats().snapshot();
+                assertEquals(5, stats.getRequestLatency().getCount());
+                assertTrue(stats.getFlushLatency().getCount() >= 1);
+                // The responder's ten messages plus the five replies
+                assertTrue(stats.getDeliveryLatency().getCount() >= 10);
+                for (LatencyHistogram h : new LatencyHistogram[] {stats.getRequestLatency(),
+                        stats.getFlushLatency(), stats.getDeliveryLatency()}) {
+                    assertTrue(h.toString(), h.getP50() > 0);
+                    assertTrue(h.toString(), h.getP50() <= h.getP99());
+                    assertTrue(h.toString(), h.getP99() <= h.getP999());
+                    assertTrue(h.toString(), h.getP999() <= h.getMax());
+                }
+
+                c.resetStats();
+                assertEquals(0, c.getStats().getRequestLatency().getCount());
+                assertEquals(5, stats.getRequestLatency().getCount());
+            }
+        }
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName connections = new ObjectName("io.nats.client:type=Connection,*");
+        ObjectName subscriptions = new ObjectName("io.nats.client:type=Subscription,*");
+        int before = server.queryNames(connections, null).size();
+
+        ConnectionFactory cf = new ConnectionFactory();
+        cf.setJmxEnabled(true);
+        cf.setConnectionName("jmx-test");
+        try (Connection c = cf.createConnection()) {
+            Set<ObjectName> names = server.queryNames(
+                    new ObjectName("io.nats.client:type=Connection,name=\"jmx-test\",*"), null);
+            assertEquals(1, names.size());
+            ObjectName connName = names.iterator().next();
+            assertEquals(before + 1, server.queryNames(connections, null).size());
+
+            try (SyncSubscription s = c.subscribeSync("foo.*")) {
+                c.publish("foo.bar", "hello".getBytes());
+                c.flush();
+
+                ObjectName subName = new ObjectName(String.format(
+                        "io.nats.client:type=Subscription,connection=%s,*",
+                        connName.getKeyProperty("id")));
+                names = server.queryNames(subName, null);
+                assertEquals(1, names.size());
+                subName = names.iterator().next();
+                assertEquals("foo.*", server.getAttribute(subName, "Subject"));
+                assertEquals(1L, server.getAttribute(subName, "Msgs"));
+                assertEquals(1, server.getAttribute(subName, "PendingMsgs"));
+                assertEquals(5L, server.getAttribute(subName, "PendingBytes"));
+                assertEquals(0, server.getAttribute(subName, "Dropped"));
+                assertEquals(false, server.getAttribute(subName, "SlowConsumer"));
+
+                assertEquals("jmx-test", server.getAttribute(connName, "Name"));
+                assertEquals("CONNECTED", server.getAttribute(connName, "State"));
+                assertEquals(1L, server.getAttribute(connName, "OutMsgs"));
+                assertEquals(1L, server.getAttribute(connName, "InMsgs"));
+                assertEquals(1, server.getAttribute(connName, "SubscriptionCount"));
+
+                s.unsubscribe();
+                assertFalse(server.isRegistered(subName));
+            }
+            assertTrue(server.isRegistered(connName));
+        }
+        assertEquals(before, server.queryNames(connections, null).size());
+        assertTrue(server.queryNames(subscriptions, null).isEmpty());
+
+        // Nothing is registered unless asked for
+        try (Connection c = new ConnectionFactory().createConnection()) {
+            c.subscribeSync("foo");
+            assertEquals(before, server.queryNames(connections, null).size());
+            assertTrue(server.queryNames(subscriptions, null).isEmpty());
+        }
+    }
+
     @Test
     public void testBadSubject() throws IOException, TimeoutException {
         try (Connection c = new ConnectionFactory().createConnection()) {
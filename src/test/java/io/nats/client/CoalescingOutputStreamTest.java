@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class CoalescingOutputStreamTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	@Test
+	public void testWritesHeldUntilFlush() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CoalescingOutputStream cos = new CoalescingOutputStream(out, 64);
+		long writes = cos.getWriteCount();
+		cos.write("PUB foo 2\r\n".getBytes());
+		assertTrue(cos.getWriteCount() > writes);
+		writes = cos.getWriteCount();
+		cos.write("ok\r\n".getBytes());
+		assertTrue(cos.getWriteCount() > writes);
+		assertEquals(0, out.size());
+		assertEquals(15, cos.pending());
+
+		cos.flush();
+		assertEquals("PUB foo 2\r\nok\r\n", new String(out.toByteArray()));
+		assertEquals(0, cos.pending());
+	}
+
+	@Test
+	public void testFullBufferDrains() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CoalescingOutputStream cos = new CoalescingOutputStream(out, 8);
+		cos.write("abcdef".getBytes());
+		cos.write("ghij".getBytes());
+		// The first write was drained to make room for the second
+		assertEquals("abcdef", new String(out.toByteArray()));
+		assertEquals(4, cos.pending());
+		cos.flush();
+		assertEquals("abcdefghij", new String(out.toByteArray()));
+	}
+
+	@Test
+	public void testLargeWriteBypassesBuffer() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CoalescingOutputStream cos = new CoalescingOutputStream(out, 8);
+		cos.write('x');
+		cos.write("0123456789".getBytes());
+		// Buffered bytes go out ahead of the large write
+		assertEquals("x0123456789", new String(out.toByteArray()));
+		assertEquals(0, cos.pending());
+	}
+
+	@Test
+	public void testBuffersReusedAcrossFlushes() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CoalescingOutputStream cos = new CoalescingOutputStream(out, 16);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			String s = "msg" + i + ";";
+			expected.append(s);
+			cos.write(s.getBytes());
+			if (i % 3 == 0) {
+				cos.flush();
+			}
+		}
+		cos.flush();
+		assertEquals(expected.toString(), new String(out.toByteArray()));
+	}
+
+	@Test
+	public void testWriteMessage() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CoalescingOutputStream cos = new CoalescingOutputStream(out, 16);
+		byte[] crlf = "\r\n".getBytes();
+		cos.write("PUB foo 5\r\n".getBytes(), 11, "hello".getBytes(), 5, crlf, 2);
+		cos.write("PUB bar 0\r\n".getBytes(), 11, null, 0, crlf, 2);
+		cos.flush();
+		assertEquals("PUB foo 5\r\nhello\r\nPUB bar 0\r\n\r\n", new String(out.toByteArray()));
+	}
+
+	@Test
+	public void testConcurrentWriters() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final CoalescingOutputStream cos = new CoalescingOutputStream(out, 64);
+		final int threads = 4;
+		final int count = 2000;
+		final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+		final AtomicBoolean done = new AtomicBoolean(false);
+		Thread[] writers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			writers[t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						barrier.await();
+						for (int i = 0; i < count; i++) {
+							byte[] head = ("<" + id + ":" + i).getBytes();
+							byte[] tail = (">" + id).getBytes();
+							cos.write(head, head.length, tail, tail.length, null, 0);
+						}
+					} catch (Exception e) {
+						fail(e.getMessage());
+					}
+				}
+			});
+			writers[t].start();
+		}
+		Thread flusher = new Thread(new Runnable() {
+			public void run() {
+				while (!done.get()) {
+					try {
+						cos.flush();
+					} catch (IOException e) {
+						fail(e.getMessage());
+					}
+					Thread.yield();
+				}
+			}
+		});
+		flusher.start();
+		barrier.await();
+		for (Thread t : writers) {
+			t.join(10000);
+		}
+		done.set(true);
+		flusher.join(10000);
+		cos.flush();
+
+		// Every message arrives whole, and each writer's messages stay in order.
+		String[] msgs = new String(out.toByteArray()).split(">[0-9]+");
+		assertEquals(threads * count, msgs.length);
+		int[] next = new int[threads];
+		for (String msg : msgs) {
+			String[] parts = msg.substring(1).split(":");
+			int id = Integer.parseInt(parts[0]);
+			assertEquals(next[id]++, Integer.parseInt(parts[1]));
+		}
+	}
+
+	@Test
+	public void testLargeBodyGathered() throws IOException {
+		GatheringStream out = new GatheringStream();
+		CoalescingOutputStream cos = new CoalescingOutputStream(out, 64);
+		cos.setGatherThreshold(8);
+		byte[] crlf = "\r\n".getBytes();
+
+		// Small bodies are buffered as usual
+		byte[] head = "PUB foo 2\r\n".getBytes();
+		cos.write(head, head.length, "ok".getBytes(), 2, crlf, 2);
+		assertEquals(0, out.gathered);
+		assertEquals(0, out.size());
+
+		// Large ones drain the buffer and go out in one gathering write
+		head = "PUB foo 10\r\n".getBytes();
+		cos.write(head, head.length, "0123456789".getBytes(), 10, crlf, 2);
+		assertEquals(1, out.gathered);
+		assertEquals(0, cos.pending());
+		assertEquals("PUB foo 2\r\nok\r\nPUB foo 10\r\n0123456789\r\n",
+				new String(out.toByteArray()));
+
+		cos.setGatherThreshold(0);
+		cos.write(head, head.length, "0123456789".getBytes(), 10, crlf, 2);
+		assertEquals(1, out.gathered);
+	}
+
+	@Test
+	public void testSealed() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CoalescingOutputStream cos = new CoalescingOutputStream(out, 16);
+		cos.write("before".getBytes());
+		assertFalse(cos.isSealed());
+		cos.seal();
+		assertTrue(cos.isSealed());
+		// What was buffered went out with the seal
+		assertEquals("before", new String(out.toByteArray()));
+
+		// and nothing written later does, whatever its size
+		byte[][] writes = { "after".getBytes(), "much too large to buffer".getBytes() };
+		for (byte[] b : writes) {
+			boolean exThrown = false;
+			try {
+				cos.write(b);
+			} catch (CoalescingOutputStream.SealedException e) {
+				exThrown = true;
+			}
+			assertTrue("Should have thrown SealedException", exThrown);
+		}
+		cos.flush();
+		assertEquals("before", new String(out.toByteArray()));
+		assertEquals(0, cos.pending());
+	}
+
+	@Test
+	public void testSealWithConcurrentWriters() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final CoalescingOutputStream cos = new CoalescingOutputStream(out, 64);
+		// Where writers take the message the sealed stream turned down
+		final ByteArrayOutputStream fallback = new ByteArrayOutputStream();
+		final int threads = 4;
+		final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+		Thread[] writers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			writers[t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						barrier.await();
+						for (int i = 0;; i++) {
+							byte[] msg = ("<" + id + ":" + i + ">").getBytes();
+							try {
+								cos.write(msg, msg.length, null, 0, null, 0);
+							} catch (CoalescingOutputStream.SealedException e) {
+								synchronized (fallback) {
+									fallback.write(msg);
+								}
+								return;
+							}
+						}
+					} catch (Exception e) {
+						fail(e.getMessage());
+					}
+				}
+			});
+			writers[t].start();
+		}
+		barrier.await();
+		while (cos.getWriteCount() < 1000) {
+			Thread.yield();
+		}
+		cos.seal();
+		for (Thread t : writers) {
+			t.join(10000);
+		}
+
+		// Every message went out exactly once and in order, and only the
+		// last one of each writer was turned down.
+		String all = new String(out.toByteArray()) + new String(fallback.toByteArray());
+		int[] next = new int[threads];
+		for (String msg : all.split(">")) {
+			String[] parts = msg.substring(1).split(":");
+			assertEquals(next[Integer.parseInt(parts[0])]++, Integer.parseInt(parts[1]));
+		}
+		assertEquals(threads, fallback.toString().split(">").length);
+	}
+
+	static class GatheringStream extends ByteArrayOutputStream
+			implements CoalescingOutputStream.GatheringOutput {
+		int gathered = 0;
+
+		@Override
+		public void write(byte[] head, int headOff, int headLen, byte[] body, int bodyLen,
+				byte[] tail, int tailLen) throws IOException {
+			gathered++;
+			write(head, headOff, headLen);
+			write(body, 0, bodyLen);
+			write(tail, 0, tailLen);
+		}
+	}
+}
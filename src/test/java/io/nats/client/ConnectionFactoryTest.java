@@ -412,6 +412,16 @@ ClosedCallback, DisconnectedCallback, ReconnectedCallback {
 		}
 		cf.setMaxPendingMsgs(49);
 		cf.setTlsDebug(true);
+		cf.setUseNio(true);
+		cf.setZeroCopy(true);
+		cf.setMessagePoolSize(32);
+		cf.setSubjectCacheSize(1000);
+		cf.setSubscriptionWaitStrategy(WaitStrategy.YIELD);
+		cf.setDispatcherThreads(4);
+		cf.setUseVirtualThreads(true);
+		cf.setUseRequestMux(true);
+		cf.setGatherWriteThreshold(4096);
+		cf.setJmxEnabled(true);
 		
 		ConnectionFactory cf2 = null;
 		cf2 = cf.clone();
@@ -440,6 +450,16 @@ ClosedCallback, DisconnectedCallback, ReconnectedCallback {
 		assertEquals(cf.getUrlString(), cf2.getUrlString());
 		assertEquals(cf.getMaxPendingMsgs(), cf2.getMaxPendingMsgs());
 		assertEquals(cf.isTlsDebug(), cf2.isTlsDebug());		
+		assertEquals(cf.isUseNio(), cf2.isUseNio());
+		assertEquals(cf.isZeroCopy(), cf2.isZeroCopy());
+		assertEquals(cf.getMessagePoolSize(), cf2.getMessagePoolSize());
+		assertEquals(cf.getSubjectCacheSize(), cf2.getSubjectCacheSize());
+		assertEquals(cf.getSubscriptionWaitStrategy(), cf2.getSubscriptionWaitStrategy());
+		assertEquals(cf.getDispatcherThreads(), cf2.getDispatcherThreads());
+		assertEquals(cf.isUseVirtualThreads(), cf2.isUseVirtualThreads());
+		assertEquals(cf.isUseRequestMux(), cf2.isUseRequestMux());
+		assertEquals(cf.getGatherWriteThreshold(), cf2.getGatherWriteThreshold());
+		assertEquals(cf.isJmxEnabled(), cf2.isJmxEnabled());
 	}
 	
 	@Test
@@ -786,6 +806,338 @@ ClosedCallback, DisconnectedCallback, ReconnectedCallback {
 		}
 	}
 
+	@Test
+	public void testIsUseNio() {
+		Properties props = new Properties();
+		props.setProperty(PROP_USE_NIO, Boolean.toString(true));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertTrue(cf.isUseNio());
+		cf.setUseNio(false);
+		assertFalse(cf.isUseNio());
+		cf.setUseNio(true);
+		try (TCPConnectionMock mock = new TCPConnectionMock())
+		{
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertTrue(c.opts.isUseNio());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testIsUseVirtualThreads() {
+		Properties props = new Properties();
+		props.setProperty(PROP_USE_VIRTUAL_THREADS, Boolean.toString(true));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertTrue(cf.isUseVirtualThreads());
+		cf.setUseVirtualThreads(false);
+		assertFalse(cf.isUseVirtualThreads());
+		cf.setUseVirtualThreads(true);
+		try (TCPConnectionMock mock = new TCPConnectionMock())
+		{
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertTrue(c.opts.isUseVirtualThreads());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testIsUseRequestMux() {
+		Properties props = new Properties();
+		props.setProperty(PROP_USE_REQUEST_MUX, Boolean.toString(true));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertTrue(cf.isUseRequestMux());
+		cf.setUseRequestMux(false);
+		assertFalse(cf.isUseRequestMux());
+		cf.setUseRequestMux(true);
+		try (TCPConnectionMock mock = new TCPConnectionMock())
+		{
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertTrue(c.opts.isUseRequestMux());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testIsJmxEnabled() {
+		Properties props = new Properties();
+		props.setProperty(PROP_JMX_ENABLED, Boolean.toString(true));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertTrue(cf.isJmxEnabled());
+		cf.setJmxEnabled(false);
+		assertFalse(cf.isJmxEnabled());
+		cf.setJmxEnabled(true);
+		try (TCPConnectionMock mock = new TCPConnectionMock())
+		{
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertTrue(c.opts.isJmxEnabled());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testIsZeroCopy() {
+		Properties props = new Properties();
+		props.setProperty(PROP_ZERO_COPY, Boolean.toString(true));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertTrue(cf.isZeroCopy());
+		cf.setZeroCopy(false);
+		assertFalse(cf.isZeroCopy());
+		cf.setZeroCopy(true);
+		try (TCPConnectionMock mock = new TCPConnectionMock())
+		{
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertTrue(c.opts.isZeroCopy());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testMessagePoolSize() {
+		Properties props = new Properties();
+		props.setProperty(PROP_MESSAGE_POOL_SIZE, Integer.toString(128));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertEquals(128, cf.getMessagePoolSize());
+		try (TCPConnectionMock mock = new TCPConnectionMock())
+		{
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertEquals(128, c.opts.getMessagePoolSize());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+
+		boolean exThrown = false;
+		try {
+			cf.setMessagePoolSize(-1);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+	}
+
+	@Test
+	public void testSubjectCacheSize() {
+		Properties props = new Properties();
+		props.setProperty(PROP_SUBJECT_CACHE_SIZE, Integer.toString(2048));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertEquals(2048, cf.getSubjectCacheSize());
+		try (TCPConnectionMock mock = new TCPConnectionMock())
+		{
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertEquals(2048, c.opts.getSubjectCacheSize());
+				assertNotNull(c.subjectCache);
+				assertEquals(2048, c.subjectCache.capacity());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+
+		boolean exThrown = false;
+		try {
+			cf.setSubjectCacheSize(-1);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+	}
+
+	@Test
+	public void testSubscriptionWaitStrategy() {
+		assertEquals(WaitStrategy.PARK, new ConnectionFactory().getSubscriptionWaitStrategy());
+		Properties props = new Properties();
+		props.setProperty(PROP_SUBSCRIPTION_WAIT_STRATEGY, "spin");
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertEquals(WaitStrategy.SPIN, cf.getSubscriptionWaitStrategy());
+		try (TCPConnectionMock mock = new TCPConnectionMock())
+		{
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertEquals(WaitStrategy.SPIN, c.opts.getSubscriptionWaitStrategy());
+				AsyncSubscriptionImpl sub = (AsyncSubscriptionImpl) c.subscribeAsync("foo");
+				assertEquals(WaitStrategy.SPIN,
+						((RingChannel<Message>) sub.getChannel()).getWaitStrategy());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+
+		boolean exThrown = false;
+		try {
+			cf.setSubscriptionWaitStrategy(null);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+	}
+
+	@Test
+	public void testGatherWriteThreshold() {
+		assertEquals(DEFAULT_GATHER_WRITE_THRESHOLD,
+				new ConnectionFactory().getGatherWriteThreshold());
+		Properties props = new Properties();
+		props.setProperty(PROP_GATHER_WRITE_THRESHOLD, Integer.toString(0));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertEquals(0, cf.getGatherWriteThreshold());
+		cf.setGatherWriteThreshold(8192);
+		try (TCPConnectionMock mock = new TCPConnectionMock()) {
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertEquals(8192, c.opts.getGatherWriteThreshold());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+
+		boolean exThrown = false;
+		try {
+			cf.setGatherWriteThreshold(-1);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+	}
+
+	@Test
+	public void testFlushOptions() {
+		ConnectionFactory cf = new ConnectionFactory();
+		assertEquals(DEFAULT_FLUSH_BATCH_SIZE, cf.getFlushBatchSize());
+		assertEquals(DEFAULT_MAX_FLUSH_DELAY_MICROS, cf.getMaxFlushDelayMicros());
+
+		Properties props = new Properties();
+		props.setProperty(PROP_FLUSH_BATCH_SIZE, Integer.toString(4096));
+		props.setProperty(PROP_MAX_FLUSH_DELAY, Long.toString(250));
+		cf = new ConnectionFactory(props);
+		assertEquals(4096, cf.getFlushBatchSize());
+		assertEquals(250, cf.getMaxFlushDelayMicros());
+
+		ConnectionFactory cf2 = cf.clone();
+		assertEquals(4096, cf2.getFlushBatchSize());
+		assertEquals(250, cf2.getMaxFlushDelayMicros());
+
+		try (TCPConnectionMock mock = new TCPConnectionMock()) {
+			try (ConnectionImpl c = cf.createConnection(mock)) {
+				assertEquals(4096, c.opts.getFlushBatchSize());
+				assertEquals(250, c.opts.getMaxFlushDelayMicros());
+			} catch (IOException | TimeoutException e) {
+				fail(e.getMessage());
+			}
+		}
+
+		boolean exThrown = false;
+		try {
+			cf.setFlushBatchSize(0);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+
+		exThrown = false;
+		try {
+			cf.setMaxFlushDelayMicros(-1);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+	}
+
+	@Test
+	public void testEventLoopThreads() {
+		Properties props = new Properties();
+		props.setProperty(PROP_EVENT_LOOP_THREADS, Integer.toString(2));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertEquals(2, cf.getEventLoopThreads());
+
+		EventLoopGroup group = cf.getEventLoopGroup();
+		assertNotNull(group);
+		assertEquals(2, group.size());
+		assertSame(group, cf.options().getEventLoopGroup());
+
+		// Clones share the pool
+		ConnectionFactory cf2 = cf.clone();
+		assertEquals(2, cf2.getEventLoopThreads());
+		assertSame(group, cf2.getEventLoopGroup());
+
+		// The clone still holds the old pool
+		cf.setEventLoopThreads(0);
+		assertNull(cf.getEventLoopGroup());
+		assertNull(cf.options().getEventLoopGroup());
+		assertFalse(group.isShutdown());
+
+		// until it is replaced there too
+		cf2.setEventLoopThreads(1);
+		assertTrue(group.isShutdown());
+		EventLoopGroup group2 = cf2.getEventLoopGroup();
+		assertEquals(1, group2.size());
+		cf2.shutdown();
+		assertTrue(group2.isShutdown());
+
+		// A factory that was shut down starts a new pool
+		EventLoopGroup group3 = cf2.getEventLoopGroup();
+		assertNotSame(group2, group3);
+		assertFalse(group3.isShutdown());
+		cf2.shutdown();
+
+		boolean exThrown = false;
+		try {
+			cf.setEventLoopThreads(-1);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+	}
+
+	@Test
+	public void testDispatcherThreads() {
+		Properties props = new Properties();
+		props.setProperty(PROP_DISPATCHER_THREADS, Integer.toString(3));
+		ConnectionFactory cf = new ConnectionFactory(props);
+		assertEquals(3, cf.getDispatcherThreads());
+
+		Dispatcher dispatcher = cf.getDispatcher();
+		assertNotNull(dispatcher);
+		assertEquals(3, dispatcher.size());
+		assertSame(dispatcher, cf.options().getDispatcher());
+
+		// Clones share the pool
+		ConnectionFactory cf2 = cf.clone();
+		assertEquals(3, cf2.getDispatcherThreads());
+		assertSame(dispatcher, cf2.getDispatcher());
+
+		// The clone still holds the old pool
+		cf.setDispatcherThreads(0);
+		assertNull(cf.getDispatcher());
+		assertNull(cf.options().getDispatcher());
+		assertFalse(dispatcher.isShutdown());
+
+		// until it is shut down there too
+		cf2.shutdown();
+		assertTrue(dispatcher.isShutdown());
+
+		// A factory that was shut down starts a new pool
+		Dispatcher dispatcher2 = cf2.getDispatcher();
+		assertNotSame(dispatcher, dispatcher2);
+		assertFalse(dispatcher2.isShutdown());
+		cf2.setDispatcherThreads(1);
+		assertTrue(dispatcher2.isShutdown());
+		cf2.shutdown();
+
+		boolean exThrown = false;
+		try {
+			cf.setDispatcherThreads(-1);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+	}
+
 	//	@Test
 	//	public void testSetSecure() {
 	//		fail("Not yet implemented"); // TODO
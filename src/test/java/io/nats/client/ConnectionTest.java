@@ -264,6 +264,8 @@ public class ConnectionTest {
         }
 
         try (ConnectionImpl c = new ConnectionFactory().createConnection(mockConn)) {
+            // Bypass the flusher's write coalescing so the write reaches the mock directly
+            c.setOutputStream(bw);
             c.sendSubscriptionMessage(sub);
             assertTrue("Should have thrown IOException", exThrown.get());
             exThrown.set(false);
@@ -997,8 +999,8 @@ public class ConnectionTest {
                 SyncSubscriptionImpl s = (SyncSubscriptionImpl) c.subscribeSync(subject);
                 Parser.MsgArg args = c.parser.new MsgArg();
                 args.sid = s.getSid();
-                args.subject.clear();
-                args.subject.put(subject.getBytes());
+                args.buf = subject.getBytes();
+                args.subjectLength = args.buf.length;
                 s.setMax(1);
                 c.ps.ma = args;
                 assertNotNull("Sub should have been present", c.getSubs().get(args.sid));
@@ -1198,9 +1200,8 @@ public class ConnectionTest {
                 doThrow(new IOException("Should not have flushed")).when(bw).flush();
                 c.close();
                 c.setOutputStream(bw);
-                Channel<Boolean> fch = c.getFlushChannel();
-                fch.add(false);
-                c.setFlushChannel(fch);
+                // A kick on a closed connection must not flush
+                c.kickFlusher();
                 c.flusher();
             } catch (IOException | TimeoutException e) {
                 e.printStackTrace();
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class DispatcherTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroThreads() {
+		new Dispatcher(0);
+	}
+
+	@Test
+	public void testOrderingOnSharedPool() throws Exception {
+		final int boxes = 50;
+		final int count = 2000;
+		Dispatcher dispatcher = new Dispatcher(2);
+		final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+		final AtomicReference<String> error = new AtomicReference<String>();
+		final CountDownLatch done = new CountDownLatch(boxes);
+
+		Dispatcher.Mailbox[] mailboxes = new Dispatcher.Mailbox[boxes];
+		@SuppressWarnings("unchecked")
+		RingChannel<Message>[] channels = new RingChannel[boxes];
+		for (int b = 0; b < boxes; b++) {
+			channels[b] = new RingChannel<Message>(count);
+			final AtomicInteger next = new AtomicInteger();
+			final AtomicBoolean running = new AtomicBoolean();
+			mailboxes[b] = new Dispatcher.Mailbox(dispatcher, channels[b]) {
+				void deliver(Message msg) {
+					threads.add(Thread.currentThread().getName());
+					if (!running.compareAndSet(false, true)) {
+						error.set("mailbox delivered on two threads at once");
+					}
+					int expected = next.getAndIncrement();
+					if (!msg.getSubject().equals(Integer.toString(expected))) {
+						error.set("expected " + expected + " but got " + msg.getSubject());
+					}
+					running.set(false);
+					if (expected == count - 1) {
+						done.countDown();
+					}
+				}
+			};
+		}
+
+		// One producer, like the connection's reader
+		for (int i = 0; i < count; i++) {
+			for (int b = 0; b < boxes; b++) {
+				assertTrue(channels[b].add(new Message(Integer.toString(i), null, null)));
+				mailboxes[b].schedule();
+			}
+		}
+
+		assertTrue("Not all messages were delivered", done.await(30, TimeUnit.SECONDS));
+		assertNull(error.get(), error.get());
+		assertTrue("Used " + threads.size() + " threads", threads.size() <= 2);
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		Dispatcher dispatcher = new Dispatcher(1);
+		RingChannel<Message> ch = new RingChannel<Message>(10);
+		final AtomicInteger delivered = new AtomicInteger();
+		Dispatcher.Mailbox mailbox = new Dispatcher.Mailbox(dispatcher, ch) {
+			void deliver(Message msg) {
+				delivered.incrementAndGet();
+			}
+		};
+		mailbox.cancel();
+		assertFalse(mailbox.isActive());
+		ch.add(new Message("foo", null, null));
+		mailbox.schedule();
+		Thread.sleep(100);
+		assertEquals(0, delivered.get());
+		assertEquals(1, ch.getCount());
+		dispatcher.shutdown();
+		assertTrue(dispatcher.isShutdown());
+	}
+}
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class EventLoopTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	EventLoopGroup group = null;
+
+	@Before
+	public void setUp() throws Exception {
+		group = new EventLoopGroup(2);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		group.shutdown();
+	}
+
+	@Test
+	public void testExecute() throws InterruptedException {
+		final EventLoop loop = group.next();
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicInteger inLoop = new AtomicInteger();
+		loop.execute(new Runnable() {
+			public void run() {
+				if (loop.inLoop()) {
+					inLoop.incrementAndGet();
+				}
+				latch.countDown();
+			}
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(1, inLoop.get());
+		assertFalse(loop.inLoop());
+	}
+
+	@Test
+	public void testScheduleOnce() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		long t0 = System.nanoTime();
+		group.next().schedule(new Runnable() {
+			public void run() {
+				latch.countDown();
+			}
+		}, 50, 0, TimeUnit.MILLISECONDS);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0) >= 50);
+	}
+
+	@Test
+	public void testSchedulePeriodicAndCancel() throws InterruptedException {
+		final AtomicInteger count = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(3);
+		EventLoop.Timer timer = group.next().schedule(new Runnable() {
+			public void run() {
+				count.incrementAndGet();
+				latch.countDown();
+			}
+		}, 10, 10, TimeUnit.MILLISECONDS);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		timer.cancel();
+		Thread.sleep(50);
+		int fired = count.get();
+		Thread.sleep(100);
+		assertEquals(fired, count.get());
+	}
+
+	@Test
+	public void testRequeuedTaskWaitsForNextPass() throws InterruptedException {
+		final EventLoop loop = group.next();
+		final CountDownLatch fired = new CountDownLatch(1);
+		final AtomicInteger passes = new AtomicInteger();
+		loop.schedule(new Runnable() {
+			public void run() {
+				fired.countDown();
+			}
+		}, 20, 0, TimeUnit.MILLISECONDS);
+		// A task that keeps queuing itself, like a loop flush building a
+		// batch, must still let the timer run.
+		loop.execute(new Runnable() {
+			public void run() {
+				if (fired.getCount() > 0 && passes.incrementAndGet() < 50000000) {
+					loop.execute(this);
+				}
+			}
+		});
+		assertTrue(fired.await(5, TimeUnit.SECONDS));
+		assertTrue("Timer only ran after " + passes.get() + " passes",
+				passes.get() < 50000000);
+	}
+
+	@Test
+	public void testRegisterReadable() throws IOException, InterruptedException {
+		final Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final ByteBuffer buf = ByteBuffer.allocate(16);
+		EventLoop.Registration reg = group.next().register(pipe.source(), new EventLoop.Handler() {
+			public void onReadable() {
+				try {
+					pipe.source().read(buf);
+				} catch (IOException e) {
+					fail(e.getMessage());
+				}
+				if (buf.position() == 5) {
+					latch.countDown();
+				}
+			}
+
+			public void onWritable() {
+				fail("Didn't ask for onWritable()");
+			}
+
+			public void onError(IOException err) {
+				fail(err.getMessage());
+			}
+		});
+		pipe.sink().write(ByteBuffer.wrap("hello".getBytes()));
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals("hello", new String(buf.array(), 0, buf.position()));
+		reg.cancel();
+		pipe.sink().close();
+		pipe.source().close();
+	}
+
+	@Test
+	public void testRequestWritable() throws IOException, InterruptedException {
+		ServerSocketChannel server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress("localhost", 0));
+		final SocketChannel client = SocketChannel.open(server.getLocalAddress());
+		SocketChannel peer = server.accept();
+		client.configureBlocking(false);
+
+		final AtomicInteger writable = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(1);
+		EventLoop loop = group.next();
+		EventLoop.Registration reg = loop.register(client, new EventLoop.Handler() {
+			public void onReadable() {}
+
+			public void onWritable() {
+				writable.incrementAndGet();
+				latch.countDown();
+			}
+
+			public void onError(IOException err) {
+				fail(err.getMessage());
+			}
+		});
+
+		// Fill the socket until it won't take any more.
+		ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+		long sent = 0;
+		int n;
+		do {
+			chunk.clear();
+			sent += (n = client.write(chunk));
+		} while (n > 0);
+
+		loop.requestWritable(reg);
+		Thread.sleep(100);
+		assertEquals(0, writable.get());
+
+		// Once the peer reads, the loop calls back exactly once.
+		ByteBuffer sink = ByteBuffer.allocate(64 * 1024);
+		while (sent > 0) {
+			sink.clear();
+			sent -= peer.read(sink);
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		assertEquals(1, writable.get());
+
+		reg.cancel();
+		peer.close();
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testWritesOnLoopNeverWait() throws Exception {
+		ServerSocketChannel server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress("localhost", 0));
+		SocketChannel client = SocketChannel.open(server.getLocalAddress());
+		SocketChannel peer = server.accept();
+		client.configureBlocking(false);
+
+		final EventLoop loop = group.next();
+		final NIOTCPConnection.ChannelOutputStream out =
+				new NIOTCPConnection.ChannelOutputStream(client, 1024);
+		final CountDownLatch drained = new CountDownLatch(1);
+		EventLoop.Registration reg = loop.register(client, new EventLoop.Handler() {
+			public void onReadable() {}
+
+			public void onWritable() {
+				try {
+					if (out.writeBacklog()) {
+						drained.countDown();
+					}
+				} catch (IOException e) {
+					fail(e.getMessage());
+				}
+			}
+
+			public void onError(IOException err) {
+				fail(err.getMessage());
+			}
+		});
+		out.attach(loop, reg);
+
+		// Far more than the socket takes while nobody reads it
+		final byte[] data = new byte[8 * 1024 * 1024];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		final CountDownLatch written = new CountDownLatch(1);
+		loop.execute(new Runnable() {
+			public void run() {
+				try {
+					out.write(data, 0, data.length);
+					out.flush();
+				} catch (IOException e) {
+					fail(e.getMessage());
+				}
+				written.countDown();
+			}
+		});
+		assertTrue("Write on the loop waited for the socket", written.await(5, TimeUnit.SECONDS));
+		assertTrue(out.isBacklogged());
+
+		// The loop writes the rest out as the peer reads it.
+		ByteBuffer received = ByteBuffer.allocate(data.length);
+		while (received.hasRemaining()) {
+			peer.read(received);
+		}
+		assertTrue(drained.await(5, TimeUnit.SECONDS));
+		assertFalse(out.isBacklogged());
+		assertArrayEquals(data, received.array());
+
+		reg.cancel();
+		peer.close();
+		client.close();
+		server.close();
+	}
+
+	@Test
+	public void testBatchingDoesNotStallOtherConnections() throws Exception {
+		try (NATSServer srv = new UnitTestUtilities().createServerOnPort(4222)) {
+			ConnectionFactory cf = new ConnectionFactory();
+			cf.setUseNio(true);
+			cf.setEventLoopThreads(1);
+			// Hold batches back for as long as writes keep coming
+			cf.setFlushBatchSize(1024 * 1024);
+			cf.setMaxFlushDelayMicros(TimeUnit.SECONDS.toMicros(5));
+			try (final Connection busy = cf.createConnection();
+					Connection other = cf.createConnection()) {
+				final AtomicBoolean stop = new AtomicBoolean();
+				final byte[] data = new byte[16];
+				Thread publisher = new Thread(new Runnable() {
+					public void run() {
+						try {
+							while (!stop.get()) {
+								busy.publish("batch", data);
+							}
+						} catch (Exception e) {
+							// the test fails on the flushes below instead
+						}
+					}
+				});
+				publisher.start();
+				try {
+					// Each flush needs the loop to read the other connection's
+					// PONG while the busy one is building a batch.
+					for (int i = 0; i < 10; i++) {
+						long t0 = System.nanoTime();
+						other.flush(2000);
+						long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+						assertTrue("Flush took " + millis + "ms", millis < 1000);
+						Thread.sleep(50);
+					}
+				} finally {
+					stop.set(true);
+					publisher.join();
+				}
+				busy.flush(5000);
+			}
+			cf.shutdown();
+		}
+	}
+
+	@Test
+	public void testGroupNext() {
+		assertEquals(2, group.size());
+		EventLoop l1 = group.next();
+		EventLoop l2 = group.next();
+		assertNotSame(l1, l2);
+		assertSame(l1, group.next());
+	}
+
+	@Test
+	public void testGroupRelease() throws InterruptedException {
+		EventLoopGroup shared = new EventLoopGroup(1);
+		final EventLoop loop = shared.next();
+		assertTrue(shared.retain());
+
+		// Still running while a reference is held
+		shared.release();
+		assertFalse(shared.isShutdown());
+		final CountDownLatch ran = new CountDownLatch(1);
+		loop.execute(new Runnable() {
+			public void run() {
+				ran.countDown();
+			}
+		});
+		assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+		// The last one shuts it down, after which it can't be shared
+		shared.release();
+		assertTrue(shared.isShutdown());
+		assertFalse(shared.retain());
+		assertNull(SharedPool.share(shared));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGroupInvalidSize() {
+		new EventLoopGroup(0);
+	}
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class LatencyHistogramTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	@Test
+	public void testBuckets() {
+		long prevHighest = -1;
+		for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+			long highest = LatencyHistogram.highestValueOf(b);
+			// Buckets are contiguous and in order
+			assertEquals(b, LatencyHistogram.bucketOf(prevHighest + 1));
+			assertEquals(b, LatencyHistogram.bucketOf(highest));
+			// and never wider than 1/32 of their values
+			long width = highest - prevHighest;
+			assertTrue("Bucket " + b + " is too wide", width * 32 <= Math.max(32, highest + 1));
+			prevHighest = highest;
+		}
+		assertEquals(LatencyHistogram.MAX_VALUE, prevHighest);
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getP99());
+
+		// 1..1000 microseconds
+		for (long us = 1; us <= 1000; us++) {
+			h.record(TimeUnit.MICROSECONDS.toNanos(us));
+		}
+		assertEquals(1000, h.getCount());
+		assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), h.getMax());
+		assertWithin(TimeUnit.MICROSECONDS.toNanos(500), h.getP50());
+		assertWithin(TimeUnit.MICROSECONDS.toNanos(990), h.getP99());
+		assertWithin(TimeUnit.MICROSECONDS.toNanos(999), h.getP999());
+		assertEquals(h.getMax(), h.getValueAtPercentile(100.0));
+		assertWithin(TimeUnit.MICROSECONDS.toNanos(1), h.getValueAtPercentile(0.0));
+	}
+
+	@Test
+	public void testOutOfRange() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(-5);
+		h.record(Long.MAX_VALUE);
+		assertEquals(2, h.getCount());
+		assertEquals(0, h.getP50());
+		assertEquals(LatencyHistogram.MAX_VALUE, h.getMax());
+
+		boolean exThrown = false;
+		try {
+			h.getValueAtPercentile(101.0);
+		} catch (IllegalArgumentException e) {
+			exThrown = true;
+		}
+		assertTrue("Should have thrown IllegalArgumentException", exThrown);
+	}
+
+	@Test
+	public void testSnapshotAndReset() {
+		LatencyHistogram h = new LatencyHistogram();
+		h.record(100);
+		h.record(200);
+		LatencyHistogram snap = h.snapshot();
+		h.record(5000);
+		assertEquals(2, snap.getCount());
+		assertEquals(200, snap.getMax());
+
+		h.reset();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getMax());
+		assertEquals(2, snap.getCount());
+	}
+
+	// Within the 1/32 resolution of the buckets
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(String.format("expected about %d but got %d", expected, actual),
+				Math.abs(actual - expected) <= expected / 32);
+	}
+}
@@ -9,6 +9,7 @@ package io.nats.client;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.junit.After;
@@ -141,4 +142,79 @@ public class MessageTest {
 				+ "<this is a really long message th60 more bytes>}", m.toString());
 	}
 
+	@Test
+	public void testSubjectBytes() {
+		Message m = new Message("orders.eu.new", "_INBOX.abc", null);
+		assertTrue(m.subjectStartsWith("orders.".getBytes()));
+		assertTrue(m.subjectStartsWith("orders.eu.new".getBytes()));
+		assertFalse(m.subjectStartsWith("orders.us".getBytes()));
+		assertFalse(m.subjectStartsWith("orders.eu.new.x".getBytes()));
+		assertTrue(m.subjectEquals("orders.eu.new".getBytes()));
+		assertFalse(m.subjectEquals("orders.eu".getBytes()));
+		assertFalse(m.subjectEquals(null));
+		assertTrue(m.hasReplyTo());
+		assertTrue(m.replyToStartsWith("_INBOX.".getBytes()));
+
+		m = new Message(msgArg("foo.bar", 0), null, new byte[0], 0, 0);
+		assertTrue(m.subjectStartsWith("foo.".getBytes()));
+		assertFalse(m.hasReplyTo());
+		assertFalse(m.replyToStartsWith("_INBOX.".getBytes()));
+		// Strings are decoded once, on first use
+		String subj = m.getSubject();
+		assertEquals("foo.bar", subj);
+		assertSame(subj, m.getSubject());
+		assertNull(m.getReplyTo());
+	}
+
+	private Parser.MsgArg msgArg(String subject, int size) {
+		Parser.MsgArg ma = new Parser(new ConnectionImpl(new Options())).new MsgArg();
+		ma.buf = subject.getBytes();
+		ma.subjectLength = ma.buf.length;
+		ma.size = size;
+		return ma;
+	}
+
+	@Test
+	public void testZeroCopyMessage() {
+		BufferPool pool = new BufferPool(64, 4);
+		BufferPool.PooledBuffer buf = pool.acquire();
+		byte[] payload = "MSG foo 1 5\r\nhello\r\n".getBytes();
+		System.arraycopy(payload, 0, buf.array(), 0, payload.length);
+
+		Message m = new Message(msgArg("foo", 5), null, buf, 13, 5);
+		assertEquals("foo", m.getSubject());
+		assertNull(m.getReplyTo());
+		assertFalse(buf.isExclusive());
+
+		ByteBuffer view = m.getDataBuffer();
+		assertTrue(view.isReadOnly());
+		assertEquals(5, view.remaining());
+		assertEquals('h', view.get(0));
+		// The view is over the read buffer itself, not a copy.
+		buf.array()[13] = 'j';
+		assertEquals('j', m.getDataBuffer().get(0));
+
+		assertTrue(Arrays.equals("jello".getBytes(), m.getData()));
+
+		m.release();
+		assertTrue(buf.isExclusive());
+		// Releasing twice is harmless, and the copied payload is still there.
+		m.release();
+		assertTrue(Arrays.equals("jello".getBytes(), m.getData()));
+
+		buf.release();
+		assertEquals(1, pool.size());
+		assertSame(buf, pool.acquire());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testZeroCopyMessageReleased() {
+		BufferPool pool = new BufferPool(64, 4);
+		BufferPool.PooledBuffer buf = pool.acquire();
+		Message m = new Message(msgArg("foo", 5), null, buf, 0, 5);
+		buf.release();
+		m.release();
+		assertEquals(1, pool.size());
+		m.getDataBuffer();
+	}
 }
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+@Category(UnitTest.class)
+public class NATSThreadFactoryTest {
+    @Rule
+    public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+    @Test
+    public void testPlatformThreads() throws Exception {
+        ThreadFactory factory = NATSThreadFactory.newThreadFactory("plain", false);
+        assertTrue(factory instanceof NATSThreadFactory);
+        Thread thread = runOn(factory);
+        assertFalse(isVirtual(thread));
+        assertEquals("plain", thread.getName());
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        ThreadFactory factory = NATSThreadFactory.newThreadFactory("virtual", true);
+        Thread thread = runOn(factory);
+        // Falls back to platform threads where the JDK has no virtual threads.
+        assertEquals(NATSThreadFactory.isVirtualThreadSupported(), isVirtual(thread));
+        assertEquals(NATSThreadFactory.isVirtualThreadSupported(),
+                !(factory instanceof NATSThreadFactory));
+        assertTrue(thread.getName().startsWith("virtual"));
+    }
+
+    private static Thread runOn(ThreadFactory factory) throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        Thread thread = factory.newThread(new Runnable() {
+            public void run() {
+                ran.countDown();
+            }
+        });
+        thread.start();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        return thread;
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
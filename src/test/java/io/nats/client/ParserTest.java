@@ -329,7 +329,7 @@ public class ParserTest {
 
 				assertEquals("Wrong msg size: ", 3, nc.parser.ps.ma.size);
 				assertEquals("Wrong sid: ", 1, nc.parser.ps.ma.sid);
-				assertEquals("Wrong subject: ", "a", Parser.bufToString(nc.parser.ps.ma.subject));
+				assertEquals("Wrong subject: ", "a", nc.parser.ps.ma.subjectString());
 				assertNotNull("Msg buffer should have been created", nc.parser.ps.msgBuf);
 
 				buf = "oo\r\n".getBytes();
@@ -353,7 +353,7 @@ public class ParserTest {
 				}
 				assertEquals("Wrong msg size: ", 3, nc.parser.ps.ma.size);
 				assertEquals("Wrong sid: ", 1, nc.parser.ps.ma.sid);
-				assertEquals("Wrong subject: ", "a", new String(nc.parser.ps.ma.subject.array(), 0, nc.parser.ps.ma.subject.limit()));
+				assertEquals("Wrong subject: ", "a", nc.parser.ps.ma.subjectString());
 				assertNotNull("Msg buffer should have been created", nc.parser.ps.msgBuf);
 				assertNotNull("Arg buffer should have been created", nc.parser.ps.argBuf);
 
@@ -383,7 +383,7 @@ public class ParserTest {
 
 				assertEquals("Wrong msg size: ", 6, nc.parser.ps.ma.size);
 				assertEquals("Wromg sid: ", 1, nc.parser.ps.ma.sid);
-				assertEquals("Wrong subject: ", "a", Parser.bufToString(nc.parser.ps.ma.subject));
+				assertEquals("Wrong subject: ", "a", nc.parser.ps.ma.subjectString());
 				assertNotNull("Msg buffer should have been created", nc.parser.ps.msgBuf);
 				assertNotNull("Arg buffer should have been created", nc.parser.ps.argBuf);
 
@@ -424,8 +424,8 @@ public class ParserTest {
 
 				assertEquals("Wrong msg size: ", msgSize, nc.parser.ps.ma.size);
 				assertEquals("Wrong sid: ", 1, nc.parser.ps.ma.sid);
-				assertEquals("Wrong subject: ", "a", Parser.bufToString(nc.parser.ps.ma.subject));
-				assertEquals("Wrong reply: ", "b", Parser.bufToString(nc.parser.ps.ma.reply));
+				assertEquals("Wrong subject: ", "a", nc.parser.ps.ma.subjectString());
+				assertEquals("Wrong reply: ", "b", nc.parser.ps.ma.replyString());
 				assertNotNull("Msg buffer should have been created", nc.parser.ps.msgBuf);
 				assertNotNull("Arg buffer should have been created", nc.parser.ps.argBuf);
 
@@ -479,5 +479,96 @@ public class ParserTest {
 			} // Connection
 		} // mockServer
 	} // testParserSplitMsg
-}
 
+	@Test
+	public void testProcessMsgArgsInPlace() throws ParseException {
+		Parser parser = new Parser(new ConnectionImpl(new Options()));
+		byte[] buf = "MSG foo.bar\t22  _INBOX.xyz 1024\r\n".getBytes();
+		parser.processMsgArgs(buf, 4, buf.length - 6);
+
+		Parser.MsgArg ma = parser.ps.ma;
+		// The subject and reply are left in the source buffer
+		assertSame(buf, ma.buf);
+		assertEquals("foo.bar", ma.subjectString());
+		assertEquals("_INBOX.xyz", ma.replyString());
+		assertEquals(22, ma.sid);
+		assertEquals(1024, ma.size);
+
+		buf = "foo 7 0".getBytes();
+		parser.processMsgArgs(buf, 0, buf.length);
+		assertEquals("foo", ma.subjectString());
+		assertNull(ma.replyString());
+		assertEquals(7, ma.sid);
+		assertEquals(0, ma.size);
+
+		// Numbers that would wrap around are rejected, not truncated
+		String[] overflows = {"foo 1 2147483648", "foo 1 4294967297",
+				"foo 1 99999999999999999999", "foo 99999999999999999999 5",
+				"foo 1 _INBOX.xyz 18446744073709551617"};
+		for (String bad : overflows) {
+			buf = bad.getBytes();
+			boolean exThrown = false;
+			try {
+				parser.processMsgArgs(buf, 0, buf.length);
+			} catch (ParseException e) {
+				exThrown = true;
+			}
+			assertTrue("Should have thrown ParseException for " + bad, exThrown);
+		}
+
+		// The largest size still fits
+		buf = "foo 1 2147483647".getBytes();
+		parser.processMsgArgs(buf, 0, buf.length);
+		assertEquals(Integer.MAX_VALUE, ma.size);
+	}
+
+	@Test
+	public void testPayloadAtEndOfBuffer() throws ParseException {
+		ConnectionImpl nc = new ConnectionImpl(new Options());
+		// The payload is complete even though its trailing CRLF isn't here yet
+		byte[] buf = "MSG foo 1 3\r\nbar".getBytes();
+		nc.parser.parse(buf, buf.length);
+		assertEquals(1, nc.getStats().getInMsgs());
+		assertEquals(3, nc.getStats().getInBytes());
+		assertNull("Payload should not have been buffered", nc.parser.ps.msgBuf);
+		assertEquals(NatsOp.MSG_END, nc.parser.ps.state);
+
+		buf = "\r\n".getBytes();
+		nc.parser.parse(buf, buf.length);
+		assertEquals(NatsOp.OP_START, nc.parser.ps.state);
+	}
+
+	@Test
+	public void testIndexOfNewline() {
+		Parser parser = new Parser(new ConnectionImpl(new Options()));
+		byte[] buf = new byte[40];
+		for (int lf = 0; lf < buf.length; lf++) {
+			// Bytes that differ from '\n' by one bit, to catch false positives
+			for (int i = 0; i < buf.length; i++) {
+				buf[i] = (byte) ((i % 2 == 0) ? '\r' : 0x8A);
+			}
+			buf[lf] = '\n';
+			for (int from = 0; from < buf.length; from++) {
+				int expected = (from <= lf) ? lf : -1;
+				assertEquals(expected, parser.indexOfNewline(buf, from, buf.length));
+			}
+			assertEquals(-1, parser.indexOfNewline(buf, 0, lf));
+		}
+	}
+
+	@Test
+	public void testParseManyMessages() throws ParseException {
+		ConnectionImpl nc = new ConnectionImpl(new Options());
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			String payload = "data" + i;
+			sb.append(String.format("MSG foo.%d %d %d\r\n%s\r\n", i, i, payload.length(), payload));
+		}
+		byte[] buf = sb.toString().getBytes();
+		nc.parser.parse(buf, buf.length);
+		assertEquals(100, nc.getStats().getInMsgs());
+		assertEquals("foo.99", nc.parser.ps.ma.subjectString());
+		assertEquals(99, nc.parser.ps.ma.sid);
+		assertEquals(NatsOp.OP_START, nc.parser.ps.state);
+	}
+}
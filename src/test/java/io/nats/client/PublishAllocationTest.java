@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class PublishAllocationTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	static final int WARMUP = 200000;
+	static final int COUNT = 100000;
+	// Allocations allowed in all of the COUNT publishes
+	static final long SLACK_BYTES = 4096;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		UnitTestUtilities.startDefaultServer();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		UnitTestUtilities.stopDefaultServer();
+	}
+
+	interface Publisher {
+		void publish() throws IOException;
+	}
+
+	@Test
+	public void testPublishSubject() throws Exception {
+		try (final Connection c = new ConnectionFactory().createConnection()) {
+			final byte[] data = "allocation free".getBytes();
+			assertAllocationFree(new Publisher() {
+				public void publish() throws IOException {
+					c.publish("foo", data);
+				}
+			});
+		}
+	}
+
+	@Test
+	public void testPublishSubjectAndReply() throws Exception {
+		try (final Connection c = new ConnectionFactory().createConnection()) {
+			final byte[] data = new byte[1024];
+			assertAllocationFree(new Publisher() {
+				public void publish() throws IOException {
+					c.publish("foo.bar", "_INBOX.reply", data);
+				}
+			});
+		}
+	}
+
+	@Test
+	public void testPublishMessage() throws Exception {
+		try (final Connection c = new ConnectionFactory().createConnection()) {
+			final Message msg = new Message("foo", "bar", "allocation free".getBytes());
+			assertAllocationFree(new Publisher() {
+				public void publish() throws IOException {
+					c.publish(msg);
+				}
+			});
+		}
+	}
+
+	@Test
+	public void testPreparedPublisher() throws Exception {
+		try (Connection c = new ConnectionFactory().createConnection()) {
+			final PreparedPublisher foo = c.prepare("foo", "bar");
+			final byte[] data = "allocation free".getBytes();
+			assertAllocationFree(new Publisher() {
+				public void publish() throws IOException {
+					foo.publish(data);
+				}
+			});
+		}
+	}
+
+	@Test
+	public void testPublishNio() throws Exception {
+		ConnectionFactory cf = new ConnectionFactory();
+		cf.setUseNio(true);
+		try (final Connection c = cf.createConnection()) {
+			final byte[] data = "allocation free".getBytes();
+			assertAllocationFree(new Publisher() {
+				public void publish() throws IOException {
+					c.publish("foo", "bar", data);
+				}
+			});
+		}
+	}
+
+	@Test
+	public void testPublishNonAsciiSubject() throws Exception {
+		// Falls back to the platform charset, and so still allocates, but
+		// must leave the protocol stream intact.
+		try (Connection c = new ConnectionFactory().createConnection()) {
+			try (SyncSubscription s = c.subscribeSync("foo")) {
+				c.publish("caf\u00e9", "r\u00e9ply", "hello".getBytes());
+				c.publish("foo", "world".getBytes());
+				Message msg = s.nextMessage(5, TimeUnit.SECONDS);
+				assertNotNull(msg);
+				assertArrayEquals("world".getBytes(), msg.getData());
+			}
+		}
+	}
+
+	private static void assertAllocationFree(Publisher publisher) throws IOException {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long tid = Thread.currentThread().getId();
+
+		// Let the JIT compile the path and the scratch buffers settle.
+		for (int i = 0; i < WARMUP; i++) {
+			publisher.publish();
+		}
+
+		long before = threads.getThreadAllocatedBytes(tid);
+		for (int i = 0; i < COUNT; i++) {
+			publisher.publish();
+		}
+		long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+		// A few lock queue nodes, while the flusher holds the connection's
+		// stream, are tolerated, but nothing that grows with the number of
+		// publishes.
+		assertTrue(String.format("Allocated %d bytes in %d publishes", allocated, COUNT),
+				allocated <= SLACK_BYTES);
+	}
+}
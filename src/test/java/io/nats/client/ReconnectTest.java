@@ -30,10 +30,12 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.nats.client.Constants.ConnState;
 
@@ -674,6 +676,78 @@ public class ReconnectTest {
         }
     }
 
+    @Test
+    public void testPublishDuringForcedReconnect() throws Exception {
+        final int threads = 4;
+        final int count = 20000;
+        try (NATSServer ts = utils.createServerOnPort(4222)) {
+            ConnectionFactory cf = new ConnectionFactory();
+            cf.setReconnectWait(50);
+
+            final Channel<Boolean> rch = new Channel<Boolean>();
+            cf.setReconnectedCallback(new ReconnectedCallback() {
+                public void onReconnect(ConnectionEvent event) {
+                    rch.add(true);
+                }
+            });
+
+            try (Connection sc = new ConnectionFactory().createConnection();
+                    final ConnectionImpl nc = (ConnectionImpl) cf.createConnection()) {
+                final AtomicInteger received = new AtomicInteger();
+                final Channel<Boolean> done = new Channel<Boolean>();
+                try (AsyncSubscription s = sc.subscribeAsync("foo", new MessageHandler() {
+                    public void onMessage(Message msg) {
+                        if (received.incrementAndGet() == threads * count) {
+                            done.add(true);
+                        }
+                    }
+                })) {
+                    sc.flush();
+
+                    final CountDownLatch started = new CountDownLatch(threads);
+                    final AtomicReference<Exception> error = new AtomicReference<Exception>();
+                    Thread[] publishers = new Thread[threads];
+                    for (int t = 0; t < threads; t++) {
+                        publishers[t] = new Thread(new Runnable() {
+                            public void run() {
+                                byte[] data = "hello".getBytes();
+                                try {
+                                    for (int i = 0; i < count; i++) {
+                                        nc.publish("foo", data);
+                                        if (i == count / 4) {
+                                            started.countDown();
+                                        }
+                                    }
+                                } catch (Exception e) {
+                                    error.set(e);
+                                }
+                            }
+                        });
+                        publishers[t].start();
+                    }
+
+                    // Drop the socket while the publishers are going. The
+                    // server stays up, so everything written to the old
+                    // socket before the drop still gets through.
+                    started.await(10, TimeUnit.SECONDS);
+                    nc.processOpError(new IOException("forced reconnect"));
+                    for (Thread t : publishers) {
+                        t.join(10000);
+                    }
+                    if (error.get() != null) {
+                        throw error.get();
+                    }
+
+                    assertTrue("Did not reconnect", waitTime(rch, 5, TimeUnit.SECONDS));
+                    nc.flush(5000);
+                    assertEquals(threads * count, nc.getStats().getOutMsgs());
+                    waitTime(done, 10, TimeUnit.SECONDS);
+                    assertEquals("Messages were lost", threads * count, received.get());
+                }
+            }
+        }
+    }
+
     @Test
     public void testReconnectVerbose() {
         try (NATSServer ts = utils.createServerOnPort(4222)) {
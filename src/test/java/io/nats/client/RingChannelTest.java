@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class RingChannelTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	@Test
+	public void testOrderAcrossGrowth() {
+		RingChannel<Integer> ch = new RingChannel<Integer>(1000);
+		int next = 0;
+		// Interleave adds and takes so that the ring grows while partly drained
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(ch.add(i));
+			if (i % 3 == 0) {
+				assertEquals(Integer.valueOf(next++), ch.poll());
+			}
+		}
+		assertEquals(1000 - next, ch.getCount());
+		Integer item;
+		while ((item = ch.poll()) != null) {
+			assertEquals(next++, item.intValue());
+		}
+		assertEquals(1000, next);
+		assertEquals(0, ch.getCount());
+	}
+
+	@Test
+	public void testLimit() {
+		RingChannel<Integer> ch = new RingChannel<Integer>(100);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(ch.add(i));
+		}
+		assertFalse(ch.add(100));
+		assertEquals(100, ch.getCount());
+		assertEquals(Integer.valueOf(0), ch.poll());
+		assertTrue(ch.add(100));
+
+		// Raising the limit lets the ring keep growing
+		ch.setLimit(200);
+		for (int i = 101; i <= 200; i++) {
+			assertTrue(ch.add(i));
+		}
+		assertFalse(ch.add(201));
+		for (int i = 1; i <= 200; i++) {
+			assertEquals(Integer.valueOf(i), ch.poll());
+		}
+	}
+
+	@Test(expected = TimeoutException.class)
+	public void testGetTimeout() throws TimeoutException {
+		RingChannel<Integer> ch = new RingChannel<Integer>(10);
+		ch.get(50, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void testCloseWakesConsumer() throws Exception {
+		final RingChannel<Integer> ch = new RingChannel<Integer>(10);
+		final AtomicReference<Object> result = new AtomicReference<Object>("none");
+		Thread consumer = new Thread(new Runnable() {
+			public void run() {
+				result.set(ch.get());
+			}
+		});
+		consumer.start();
+		Thread.sleep(50);
+		ch.close();
+		consumer.join(5000);
+		assertFalse(consumer.isAlive());
+		assertNull(result.get());
+		assertTrue(ch.isClosed());
+		assertFalse(ch.add(1));
+	}
+
+	@Test
+	public void testInterruptReturnsNull() throws Exception {
+		final RingChannel<Integer> ch = new RingChannel<Integer>(10);
+		final AtomicReference<Object> result = new AtomicReference<Object>("none");
+		Thread consumer = new Thread(new Runnable() {
+			public void run() {
+				result.set(ch.get());
+			}
+		});
+		consumer.start();
+		Thread.sleep(50);
+		consumer.interrupt();
+		consumer.join(5000);
+		assertFalse(consumer.isAlive());
+		assertNull(result.get());
+	}
+
+	@Test
+	public void testProducerConsumer() throws Exception {
+		for (WaitStrategy strategy : WaitStrategy.values()) {
+			transfer(strategy, 200000);
+		}
+	}
+
+	private void transfer(WaitStrategy strategy, final int count) throws Exception {
+		final RingChannel<Integer> ch = new RingChannel<Integer>(count);
+		ch.setWaitStrategy(strategy);
+		final AtomicReference<String> error = new AtomicReference<String>();
+		Thread consumer = new Thread(new Runnable() {
+			public void run() {
+				for (int i = 0; i < count; i++) {
+					Integer item = ch.get();
+					if (item == null || item.intValue() != i) {
+						error.set("expected " + i + " but got " + item);
+						return;
+					}
+				}
+			}
+		});
+		consumer.start();
+		for (int i = 0; i < count; i++) {
+			assertTrue(ch.add(i));
+			if (i % 1000 == 0) {
+				// Let the consumer catch up and wait now and then
+				Thread.sleep(1);
+			}
+		}
+		consumer.join(30000);
+		assertFalse(strategy + " consumer still running", consumer.isAlive());
+		assertNull(strategy.toString(), error.get());
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Compares sid lookups in {@link SidMap} against the {@code ConcurrentHashMap<Long, ...>} it
+ * replaced. The sids are past the {@code Long} cache, as they are on a long-lived connection.
+ */
+@Category(BenchmarkTest.class)
+public class SidMapBenchTest {
+    private static final int SUBS = 100;
+    private static final long FIRST_SID = 100000L;
+    private static final int LOOKUPS = 50000000;
+    private static final int ROUNDS = 5;
+
+    @Rule
+    public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+    @Test
+    public void testLookupSpeed() {
+        SidMap sidMap = new SidMap();
+        Map<Long, SubscriptionImpl> chm = new ConcurrentHashMap<Long, SubscriptionImpl>();
+        for (long sid = FIRST_SID; sid < FIRST_SID + SUBS; sid++) {
+            SubscriptionImpl sub = new SyncSubscriptionImpl(null, "foo", null, 0, 0);
+            sub.setSid(sid);
+            sidMap.put(sid, sub);
+            chm.put(sid, sub);
+        }
+
+        // Alternate so that both get the same warm-up.
+        for (int round = 0; round < ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            long found = lookupSidMap(sidMap);
+            long sidMapNanos = System.nanoTime() - t0;
+            assertEquals(LOOKUPS, found);
+
+            t0 = System.nanoTime();
+            found = lookupMap(chm);
+            long chmNanos = System.nanoTime() - t0;
+            assertEquals(LOOKUPS, found);
+
+            System.out.printf("Round %d: SidMap %.2f ns/lookup, ConcurrentHashMap %.2f ns/lookup\n",
+                    round, (double) sidMapNanos / LOOKUPS, (double) chmNanos / LOOKUPS);
+        }
+    }
+
+    private static long lookupSidMap(SidMap map) {
+        long found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (map.get(FIRST_SID + (i % SUBS)) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static long lookupMap(Map<Long, SubscriptionImpl> map) {
+        long found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (map.get(FIRST_SID + (i % SUBS)) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
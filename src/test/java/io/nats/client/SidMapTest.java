@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class SidMapTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	private static SubscriptionImpl newSub(long sid) {
+		SubscriptionImpl sub = new SyncSubscriptionImpl(null, "foo." + sid, null, 0, 0);
+		sub.setSid(sid);
+		return sub;
+	}
+
+	@Test
+	public void testPutGetRemove() {
+		SidMap map = new SidMap();
+		SubscriptionImpl s1 = newSub(1);
+		SubscriptionImpl s2 = newSub(2);
+		assertNull(map.put(1, s1));
+		assertNull(map.put(2, s2));
+		assertEquals(2, map.size());
+		assertSame(s1, map.get(1));
+		assertSame(s2, map.get(Long.valueOf(2)));
+		assertTrue(map.containsKey(2L));
+		assertNull(map.get(3));
+		assertNull(map.get("1"));
+
+		assertSame(s1, map.remove(1));
+		assertNull(map.remove(1));
+		assertNull(map.get(1));
+		assertEquals(1, map.size());
+
+		// A removed sid can come back
+		assertNull(map.put(1, s1));
+		assertSame(s1, map.get(1));
+		assertEquals(2, map.size());
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertNull(map.get(2));
+	}
+
+	@Test
+	public void testCollidingSids() {
+		SidMap map = new SidMap();
+		// With sixteen slots these all start probing at the same one
+		for (long sid = 16; sid <= 16 * 7; sid += 16) {
+			map.put(sid, newSub(sid));
+		}
+		map.remove(32L);
+		for (long sid = 16; sid <= 16 * 7; sid += 16) {
+			if (sid == 32) {
+				assertNull(map.get(sid));
+			} else {
+				assertEquals(sid, map.get(sid).getSid());
+			}
+		}
+	}
+
+	@Test
+	public void testGrowsAndDropsRemoved() {
+		SidMap map = new SidMap();
+		for (long sid = 1; sid <= 10000; sid++) {
+			map.put(sid, newSub(sid));
+			if (sid > 10) {
+				// Keep ten live, like short-lived request subscriptions
+				assertNotNull(map.remove(sid - 10));
+			}
+		}
+		assertEquals(10, map.size());
+		for (long sid = 1; sid <= 10000; sid++) {
+			SubscriptionImpl sub = map.get(sid);
+			if (sid > 9990) {
+				assertEquals(sid, sub.getSid());
+			} else {
+				assertNull(sub);
+			}
+		}
+	}
+
+	@Test
+	public void testEntrySetIsSnapshot() {
+		SidMap map = new SidMap();
+		for (long sid = 1; sid <= 5; sid++) {
+			map.put(sid, newSub(sid));
+		}
+		Map<Long, SubscriptionImpl> copy = new HashMap<Long, SubscriptionImpl>(map);
+		assertEquals(5, copy.size());
+		for (Long key : map.keySet()) {
+			// Removing while iterating is safe
+			map.remove(key);
+			assertEquals(key.longValue(), copy.get(key).getSid());
+		}
+		assertTrue(map.isEmpty());
+
+		SidMap other = new SidMap(copy);
+		assertEquals(5, other.size());
+		assertSame(copy.get(3L), other.get(3));
+	}
+
+	@Test
+	public void testConcurrentReader() throws Exception {
+		final SidMap map = new SidMap();
+		final SubscriptionImpl stable = newSub(1);
+		map.put(1, stable);
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicReference<String> error = new AtomicReference<String>();
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				while (!done.get()) {
+					if (map.get(1) != stable) {
+						error.set("lost a live subscription");
+					}
+					for (long sid = 2; sid < 200; sid++) {
+						SubscriptionImpl sub = map.get(sid);
+						if (sub != null && sub.getSid() != sid) {
+							error.set("wrong subscription for sid " + sid);
+						}
+					}
+				}
+			}
+		});
+		reader.start();
+		for (int round = 0; round < 200; round++) {
+			for (long sid = 2; sid < 200; sid++) {
+				map.put(sid, newSub(sid));
+			}
+			for (long sid = 2; sid < 200; sid++) {
+				map.remove(sid);
+			}
+		}
+		done.set(true);
+		reader.join(10000);
+		assertNull(error.get());
+		assertEquals(1, map.size());
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc. All rights reserved. This program and the accompanying
+ * materials are made available under the terms of the MIT License (MIT) which accompanies this
+ * distribution, and is available at http://opensource.org/licenses/MIT
+ *******************************************************************************/
+
+package io.nats.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Compares the outbound counting done on every publish, with {@link Statistics} against the pair
+ * of {@code AtomicLong}s it used to keep, with several publisher threads counting at once.
+ */
+@Category(BenchmarkTest.class)
+public class StatisticsBenchTest {
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int PUBLISHES = 5000000;
+    private static final int ROUNDS = 5;
+
+    @Rule
+    public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+    interface Counter {
+        void count(long bytes);
+    }
+
+    @Test
+    public void testContendedCounting() throws Exception {
+        // Alternate so that both get the same warm-up.
+        for (int round = 0; round < ROUNDS; round++) {
+            final Statistics stats = new Statistics();
+            long statsNanos = run(new Counter() {
+                public void count(long bytes) {
+                    stats.incrementOutMsgs();
+                    stats.incrementOutBytes(bytes);
+                }
+            });
+            assertEquals((long) THREADS * PUBLISHES, stats.getOutMsgs());
+
+            final AtomicLong msgs = new AtomicLong();
+            final AtomicLong bytes = new AtomicLong();
+            long atomicNanos = run(new Counter() {
+                public void count(long n) {
+                    msgs.incrementAndGet();
+                    bytes.addAndGet(n);
+                }
+            });
+            assertEquals((long) THREADS * PUBLISHES, msgs.get());
+
+            System.out.printf("Round %d, %d threads: Statistics %.2f ns/publish, "
+                    + "AtomicLong %.2f ns/publish\n", round, THREADS,
+                    (double) statsNanos / PUBLISHES, (double) atomicNanos / PUBLISHES);
+        }
+    }
+
+    // Returns how long THREADS threads took to count PUBLISHES publishes each.
+    private static long run(final Counter counter) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < PUBLISHES; j++) {
+                        counter.count(j & 127);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        return System.nanoTime() - t0;
+    }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+
+import java.text.ParseException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class SubjectCacheTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	@Test
+	public void testIntern() {
+		Statistics stats = new Statistics();
+		SubjectCache cache = new SubjectCache(8, stats);
+		byte[] buf = "MSG foo.bar 1 5".getBytes();
+
+		SubjectCache.Entry e1 = cache.intern(buf, 4, 7);
+		assertEquals("foo.bar", e1.string);
+		assertEquals(0, stats.getSubjectCacheHits());
+		assertEquals(1, stats.getSubjectCacheMisses());
+
+		// Same subject at a different spot in a different buffer
+		byte[] buf2 = "xxfoo.bar".getBytes();
+		SubjectCache.Entry e2 = cache.intern(buf2, 2, 7);
+		assertSame(e1, e2);
+		assertSame(e1.bytes, e2.bytes);
+		assertEquals(1, stats.getSubjectCacheHits());
+		assertEquals(1, stats.getSubjectCacheMisses());
+
+		// A prefix of a cached subject is a different subject
+		SubjectCache.Entry e3 = cache.intern(buf2, 2, 3);
+		assertNotSame(e1, e3);
+		assertEquals("foo", e3.string);
+		assertEquals(2, stats.getSubjectCacheMisses());
+		assertEquals(2, cache.size());
+
+		stats.clear();
+		assertEquals(0, stats.getSubjectCacheHits());
+		assertEquals(0, stats.getSubjectCacheMisses());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		Statistics stats = new Statistics();
+		SubjectCache cache = new SubjectCache(2, stats);
+		byte[] a = "a".getBytes();
+		byte[] b = "b".getBytes();
+		byte[] c = "c".getBytes();
+
+		SubjectCache.Entry ea = cache.intern(a, 0, 1);
+		cache.intern(b, 0, 1);
+		// Touch "a" so that "b" is the eldest
+		assertSame(ea, cache.intern(a, 0, 1));
+		cache.intern(c, 0, 1);
+		assertEquals(2, cache.size());
+
+		assertSame(ea, cache.intern(a, 0, 1));
+		long misses = stats.getSubjectCacheMisses();
+		cache.intern(b, 0, 1);
+		assertEquals(misses + 1, stats.getSubjectCacheMisses());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new SubjectCache(0, new Statistics());
+	}
+
+	@Test
+	public void testMessagesShareSubject() throws ParseException {
+		Options opts = new Options();
+		opts.setSubjectCacheSize(16);
+		ConnectionImpl nc = new ConnectionImpl(opts);
+		assertNotNull(nc.subjectCache);
+		Parser parser = new Parser(nc);
+
+		byte[] args = "foo.bar 1 5".getBytes();
+		parser.processMsgArgs(args, 0, args.length);
+		Message m1 = new Message(parser.ps.ma, null, "hello".getBytes(), 0, 5);
+		parser.processMsgArgs(args, 0, args.length);
+		Message m2 = new Message(parser.ps.ma, null, "world".getBytes(), 0, 5);
+		assertSame(m1.getSubjectBytes(), m2.getSubjectBytes());
+		assertSame(m1.getSubject(), m2.getSubject());
+		assertEquals("foo.bar", m2.getSubject());
+		assertEquals(1, nc.getStats().getSubjectCacheHits());
+		assertEquals(1, nc.getStats().getSubjectCacheMisses());
+	}
+}
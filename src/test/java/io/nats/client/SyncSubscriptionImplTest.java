@@ -110,4 +110,40 @@ public class SyncSubscriptionImplTest {
 			} 
 		}
 	}
+
+	@Test
+	public void testPendingAccounting() throws IOException, TimeoutException {
+		ConnectionImpl nc = mock(ConnectionImpl.class);
+		byte[] payload = "hello".getBytes();
+		try (SyncSubscriptionImpl s = new SyncSubscriptionImpl(nc, "foo", null, 2, 0))
+		{
+			assertTrue(s.addMessage(new Message(payload, payload.length, "foo", null, s)));
+			assertTrue(s.addMessage(new Message(payload, payload.length, "foo", null, s)));
+			// The channel is full, so the third is dropped
+			assertFalse(s.addMessage(new Message(payload, payload.length, "foo", null, s)));
+			verify(nc, times(1)).processSlowConsumer(s);
+			assertEquals(1, s.getDropped());
+			assertEquals(2, s.pMsgs.get());
+			assertEquals(10, s.pBytes.get());
+			assertEquals(3, s.pMsgsMax);
+
+			s.tallyDeliveredMessage(s.getChannel().get());
+			assertEquals(1, s.pMsgs.get());
+			assertEquals(5, s.pBytes.get());
+			assertEquals(1, s.delivered.get());
+		}
+	}
+
+	@Test
+	public void testTallyMessageMax() {
+		ConnectionImpl nc = mock(ConnectionImpl.class);
+		try (SyncSubscriptionImpl s = new SyncSubscriptionImpl(nc, "foo", null, 20, 0))
+		{
+			s.setMax(1);
+			assertFalse(s.tallyMessage(5));
+			assertFalse(s.tallyMessage(5));
+			assertTrue(s.tallyMessage(5));
+			assertEquals(10, s.bytes.get());
+		}
+	}
 }
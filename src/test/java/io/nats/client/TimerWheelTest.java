@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2016 Apcera Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the MIT License (MIT)
+ * which accompanies this distribution, and is available at
+ * http://opensource.org/licenses/MIT
+ *******************************************************************************/
+package io.nats.client;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class TimerWheelTest {
+	@Rule
+	public TestCasePrinterRule pr = new TestCasePrinterRule(System.out);
+
+	TimerWheel wheel;
+
+	@Before
+	public void setUp() {
+		// A small wheel, so that longer timeouts take several turns
+		wheel = new TimerWheel(5, TimeUnit.MILLISECONDS, 8, "testwheel");
+	}
+
+	@After
+	public void tearDown() {
+		wheel.shutdown();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWheelSizePowerOfTwo() {
+		new TimerWheel(5, TimeUnit.MILLISECONDS, 10, "badwheel");
+	}
+
+	@Test
+	public void testNeverEarly() throws Exception {
+		final int count = 50;
+		final CountDownLatch fired = new CountDownLatch(count);
+		final AtomicInteger early = new AtomicInteger();
+		for (int i = 0; i < count; i++) {
+			// Up to 245ms, i.e. up to six turns of the wheel
+			final long delay = i * 5;
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+			wheel.schedule(new Runnable() {
+				public void run() {
+					if (System.nanoTime() < deadline) {
+						early.incrementAndGet();
+					}
+					fired.countDown();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+		assertTrue("Not all timeouts fired", fired.await(5, TimeUnit.SECONDS));
+		assertEquals(0, early.get());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		final AtomicInteger fired = new AtomicInteger();
+		Runnable task = new Runnable() {
+			public void run() {
+				fired.incrementAndGet();
+			}
+		};
+		TimerWheel.Timeout cancelled = wheel.schedule(task, 20, TimeUnit.MILLISECONDS);
+		wheel.schedule(task, 20, TimeUnit.MILLISECONDS);
+		cancelled.cancel();
+		assertTrue(cancelled.isCancelled());
+		Thread.sleep(200);
+		assertEquals(1, fired.get());
+	}
+
+	@Test
+	public void testMixedBucket() throws Exception {
+		final AtomicInteger early = new AtomicInteger();
+		final AtomicInteger late = new AtomicInteger();
+		Runnable earlyTask = new Runnable() {
+			public void run() {
+				early.incrementAndGet();
+			}
+		};
+		Runnable lateTask = new Runnable() {
+			public void run() {
+				late.incrementAndGet();
+			}
+		};
+		// One turn of the wheel apart, so that both land in the same bucket,
+		// with every third one cancelled
+		for (int i = 0; i < 300; i++) {
+			TimerWheel.Timeout timeout = (i % 2 == 0)
+					? wheel.schedule(earlyTask, 20, TimeUnit.MILLISECONDS)
+					: wheel.schedule(lateTask, 60, TimeUnit.MILLISECONDS);
+			if (i % 3 == 0) {
+				timeout.cancel();
+			}
+		}
+		Thread.sleep(300);
+		assertEquals(100, early.get());
+		assertEquals(100, late.get());
+	}
+
+	@Test
+	public void testManyTimeouts() throws Exception {
+		final int count = 100000;
+		final CountDownLatch fired = new CountDownLatch(count / 2);
+		final AtomicLong latest = new AtomicLong();
+		Runnable task = new Runnable() {
+			public void run() {
+				latest.set(System.nanoTime());
+				fired.countDown();
+			}
+		};
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			TimerWheel.Timeout timeout = wheel.schedule(task, 50, TimeUnit.MILLISECONDS);
+			// Half are cancelled, like requests that got their reply
+			if (i % 2 == 0) {
+				timeout.cancel();
+			}
+		}
+		assertTrue("Not all timeouts fired", fired.await(10, TimeUnit.SECONDS));
+		assertTrue(latest.get() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+	}
+}